@@ -50,7 +50,10 @@ public class SingleFileHTTPServer {
                     logger.info("监听端口: 8281");
                     logger.info("服务端点:");
                     logger.info("  - POST http://localhost:8281/print  : 打印服务");
+                    logger.info("  - POST http://localhost:8281/print/upload: 上传文档打印");
+                    logger.info("  - GET  http://localhost:8281/jobs/{id}: 作业状态");
                     logger.info("  - GET  http://localhost:8281/health : 健康检查");
+                    logger.info("  - GET  http://localhost:8281/metrics: 运行指标");
                     logger.info("=====================================");
                 } else {
                     logger.error("HTTP服务启动失败");
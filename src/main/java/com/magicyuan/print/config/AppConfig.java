@@ -48,6 +48,233 @@ public class AppConfig {
 
     public static final int WINDOW_Y = 200;
 
+    // HTTP服务配置(可通过 -Dprintbridge.xxx 系统属性覆盖)
+    public static final class Http {
+
+        /** 是否以流式方式解析打印请求体,false时退回整体读取后解析 */
+        public static final boolean STREAMING_PARSE = Boolean.parseBoolean(System.getProperty("printbridge.http.streamingParse", "true"));
+    }
+
+    // 打印队列配置
+    public static final class Queue {
+
+        /** 准入队列容量,超出后按拒绝策略处理 */
+        public static final int CAPACITY = Integer.getInteger("printbridge.queue.capacity", 200);
+
+        /** 拒绝策略: reject(立即拒绝) 或 wait(等待后再拒绝) */
+        public static final String REJECT_POLICY = System.getProperty("printbridge.queue.rejectPolicy", "reject");
+
+        /** wait策略下的最长等待时间(毫秒) */
+        public static final long OFFER_TIMEOUT_MS = Long.getLong("printbridge.queue.offerTimeoutMs", 2000L);
+    }
+
+    // 打印流水线配置
+    public static final class Pipeline {
+
+        /** 下载阶段线程数 */
+        public static final int FETCH_THREADS = Integer.getInteger("printbridge.pipeline.fetchThreads", 4);
+
+        /** 转换阶段线程数,Office转换另受实例池大小限制 */
+        public static final int CONVERT_THREADS = Integer.getInteger("printbridge.pipeline.convertThreads",
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+
+        /** 下载和转换阶段各自的等待队列容量,满时阻塞上一阶段 */
+        public static final int STAGE_CAPACITY = Integer.getInteger("printbridge.pipeline.stageCapacity", 8);
+
+        /** 已进入流水线、尚未开始打印的提交数上限,满时准入队列停止分发 */
+        public static final int SPOOL_CAPACITY = Integer.getInteger("printbridge.pipeline.spoolCapacity", 16);
+    }
+
+    // 打印机配置
+    public static final class Printers {
+
+        /** 打印机别名,格式为 别名=打印机名称,多个以逗号分隔,如 labels=Zebra ZT410,a4=HP LaserJet */
+        public static final String ALIASES = System.getProperty("printbridge.printer.aliases", "");
+
+        /** 后台刷新系统打印机列表和能力的间隔(毫秒) */
+        public static final long LOOKUP_CACHE_MS = Long.getLong("printbridge.printer.lookupCacheMs", 30000L);
+
+        /** 打印机池,格式为 池名=成员1|成员2,多个池以逗号分隔;成员为打印机名称或别名 */
+        public static final String POOLS = System.getProperty("printbridge.printer.pools", "");
+
+        /** 打印机池成员状态(排队作业数、错误状态)的后台刷新间隔(毫秒) */
+        public static final long STATE_CACHE_MS = Long.getLong("printbridge.printer.stateCacheMs", 2000L);
+
+        /** 打印机池的分片页数,超过该页数的PDF按页拆分到池中多台打印机并行打印,0为不拆分 */
+        public static final int SHARD_PAGES = Integer.getInteger("printbridge.printer.shardPages", 0);
+
+        /** 是否在每个分片前打印标识页(文件名、分片序号、页码范围) */
+        public static final boolean SHARD_BANNER = Boolean.parseBoolean(System.getProperty("printbridge.printer.shardBanner", "false"));
+    }
+
+    // 打印作业配置
+    public static final class Jobs {
+
+        /** 保留的作业记录数,超出后淘汰最早的已结束作业 */
+        public static final int HISTORY_SIZE = Integer.getInteger("printbridge.jobs.historySize", 10000);
+
+        /** 长轮询的最长等待时间(毫秒) */
+        public static final long MAX_WAIT_MS = Long.getLong("printbridge.jobs.maxWaitMs", 60000L);
+    }
+
+    // 重新打印缓存配置
+    public static final class Reprint {
+
+        /** 缓存最近打印的PDF内容的总字节数上限,0表示不启用 */
+        public static final long MAX_BYTES = Long.getLong("printbridge.reprint.maxBytes", 256L * 1024 * 1024);
+
+        /** 其中保存在堆内的字节数上限,超出部分写入临时文件 */
+        public static final long MEMORY_BYTES = Long.getLong("printbridge.reprint.memoryBytes", 32L * 1024 * 1024);
+
+        /** 缓存条目的保留时间(秒) */
+        public static final long TTL_SECONDS = Long.getLong("printbridge.reprint.ttlSeconds", 1800);
+    }
+
+    // 文件上传配置
+    public static final class Upload {
+
+        /** 单个上传文档的最大字节数 */
+        public static final long MAX_SIZE = Long.getLong("printbridge.upload.maxSize", 100L * 1024 * 1024);
+
+        /** 超过该字节数的上传内容写入临时文件,否则保存在内存中 */
+        public static final int MEMORY_THRESHOLD = Integer.getInteger("printbridge.upload.memoryThreshold", 4 * 1024 * 1024);
+    }
+
+    // 文档下载配置
+    public static final class Fetch {
+
+        /** 连接超时(毫秒) */
+        public static final int CONNECT_TIMEOUT_MS = Integer.getInteger("printbridge.fetch.connectTimeoutMs", 10000);
+
+        /** 读取超时(毫秒) */
+        public static final int READ_TIMEOUT_MS = Integer.getInteger("printbridge.fetch.readTimeoutMs", 30000);
+
+        /** 每个主机的最大并发下载数 */
+        public static final int MAX_CONNECTIONS_PER_HOST = Integer.getInteger("printbridge.fetch.maxConnectionsPerHost", 8);
+
+        /** 下载内容超过该字节数时写入临时文件 */
+        public static final int MEMORY_THRESHOLD = Integer.getInteger("printbridge.fetch.memoryThreshold", 4 * 1024 * 1024);
+
+        /** 单个文档的最大字节数 */
+        public static final long MAX_SIZE = Long.getLong("printbridge.fetch.maxSize", 512L * 1024 * 1024);
+    }
+
+    // 图片转换配置
+    public static final class Image {
+
+        /** 图片转换生成的PDF超过该字节数时写入临时文件 */
+        public static final int OUTPUT_MEMORY_THRESHOLD = Integer.getInteger("printbridge.image.outputMemoryThreshold", 16 * 1024 * 1024);
+
+        /** 默认目标打印分辨率,图片按页面上的实际尺寸降采样到该分辨率后嵌入,0表示不降采样 */
+        public static final int TARGET_DPI = Integer.getInteger("printbridge.image.targetDpi", 300);
+
+        /** 降采样后重新编码JPEG的质量(0~1) */
+        public static final float JPEG_QUALITY = Float.parseFloat(System.getProperty("printbridge.image.jpegQuality", "0.9"));
+    }
+
+    // PDF加载配置
+    public static final class Pdf {
+
+        /** 内存策略: mixed=堆内缓冲加临时文件, memory=全部在堆内, file=全部使用临时文件 */
+        public static final String MEMORY_MODE = System.getProperty("printbridge.pdf.memoryMode", "mixed");
+
+        /** 混合模式下单个文档的堆内缓冲上限,超出部分写入临时文件 */
+        public static final long HEAP_PER_DOCUMENT = Long.getLong("printbridge.pdf.heapPerDocument", 64L * 1024 * 1024);
+
+        /** 所有正在打印的文档堆内缓冲总预算,用尽后新文档只使用临时文件 */
+        public static final long HEAP_BUDGET = Long.getLong("printbridge.pdf.heapBudget", Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    // 打印渲染配置
+    public static final class Render {
+
+        /** 是否启用预渲染: 在线程池中提前并行渲染后续页面,打印线程只绘制位图 */
+        public static final boolean PRE_RENDER = Boolean.parseBoolean(System.getProperty("printbridge.render.preRender", "false"));
+
+        /** 预渲染分辨率 */
+        public static final float DPI = Float.parseFloat(System.getProperty("printbridge.render.dpi", "300"));
+
+        /** 预渲染线程数 */
+        public static final int THREADS = Integer.getInteger("printbridge.render.threads", Runtime.getRuntime().availableProcessors());
+
+        /** 每个文档最多提前渲染的页数,每页300dpi的A4位图约35MB */
+        public static final int LOOKAHEAD = Integer.getInteger("printbridge.render.lookahead", 4);
+
+        /** 直接发送PDF字节(不经Java2D渲染)的打印机名称,逗号分隔,*表示所有接受PDF的打印机;打印机不支持时自动回退 */
+        public static final String PASSTHROUGH_PRINTERS = System.getProperty("printbridge.render.passthroughPrinters", "");
+    }
+
+    // 临时文件配置
+    public static final class Temp {
+
+        /** 临时文件目录(下载溢出、上传、转换中间文件),可指向tmpfs如/dev/shm */
+        public static final String DIRECTORY = System.getProperty("printbridge.tempDir", System.getProperty("java.io.tmpdir"));
+    }
+
+    // 文档缓存配置
+    public static final class Cache {
+
+        /** 是否启用按URL的文档磁盘缓存,默认关闭;启用后下载的文档保存在缓存目录中,直到按LRU淘汰 */
+        public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("printbridge.cache.enabled", "false"));
+
+        /** 缓存目录 */
+        public static final String DIRECTORY = System.getProperty("printbridge.cache.directory",
+            System.getProperty("user.home") + java.io.File.separator + ".printbridge" + java.io.File.separator + "cache"
+                + java.io.File.separator + "documents");
+
+        /** 缓存总字节数上限 */
+        public static final long MAX_BYTES = Long.getLong("printbridge.cache.maxBytes", 1024L * 1024 * 1024);
+
+        /** 响应未指定max-age时,缓存条目视为新鲜的秒数;过期后发送条件请求重新验证 */
+        public static final long TTL_SECONDS = Long.getLong("printbridge.cache.ttlSeconds", 300);
+
+        /** 是否启用转换结果(Office/图片转PDF)缓存,默认关闭;启用后转换得到的PDF保存在缓存目录中,直到按LRU淘汰 */
+        public static final boolean CONVERSION_ENABLED = Boolean.parseBoolean(System.getProperty("printbridge.cache.conversion.enabled", "false"));
+
+        /** 转换结果缓存目录 */
+        public static final String CONVERSION_DIRECTORY = System.getProperty("printbridge.cache.conversion.directory",
+            System.getProperty("user.home") + java.io.File.separator + ".printbridge" + java.io.File.separator + "cache"
+                + java.io.File.separator + "conversions");
+
+        /** 转换结果缓存总字节数上限 */
+        public static final long CONVERSION_MAX_BYTES = Long.getLong("printbridge.cache.conversion.maxBytes", 1024L * 1024 * 1024);
+    }
+
+    // Office转换配置
+    public static final class Office {
+
+        /** 最多LibreOffice实例数量,每个实例是一个独立的soffice进程 */
+        public static final int POOL_SIZE = Integer.getInteger("printbridge.office.poolSize",
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+        /** 最少保持运行的实例数,为0时首个Office转换到来时才启动 */
+        public static final int MIN_SIZE = Integer.getInteger("printbridge.office.minSize", 1);
+
+        /** 等待空闲实例超过该时间时启动新实例(毫秒) */
+        public static final long SCALE_UP_WAIT_MS = Long.getLong("printbridge.office.scaleUpWaitMs", 1000L);
+
+        /** 实例空闲超过该时间后停止(毫秒),0表示不停止 */
+        public static final long IDLE_TIMEOUT_MS = Long.getLong("printbridge.office.idleTimeoutMs", 600_000L);
+
+        /** Office作业等待转换器初始化完成的超时(毫秒) */
+        public static final long STARTUP_TIMEOUT_MS = Long.getLong("printbridge.office.startupTimeoutMs", 120_000L);
+
+        /** 不超过该字节数的文档以流方式转换,PDF结果保存在内存中;更大的文档使用文件转换 */
+        public static final long STREAM_THRESHOLD = Long.getLong("printbridge.office.streamThreshold", 32L * 1024 * 1024);
+
+        /** 第一个实例的端口,其余实例依次递增 */
+        public static final int BASE_PORT = Integer.getInteger("printbridge.office.basePort", 2002);
+
+        /** 单个转换任务超时(毫秒) */
+        public static final long TASK_TIMEOUT_MS = Long.getLong("printbridge.office.taskTimeoutMs", 120_000L);
+
+        /** 每个进程处理该数量的任务后重启,避免内存泄漏 */
+        public static final int MAX_TASKS_PER_PROCESS = Integer.getInteger("printbridge.office.maxTasksPerProcess", 50);
+
+        /** 所有实例忙时等待空闲实例的超时(毫秒) */
+        public static final long QUEUE_TIMEOUT_MS = Long.getLong("printbridge.office.queueTimeoutMs", 300_000L);
+    }
+
     // 颜色配置
     public static final class Colors {
 
@@ -0,0 +1,98 @@
+package com.magicyuan.print.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+
+import com.magicyuan.print.document.DiskLruCache;
+import com.magicyuan.print.document.DocumentContent;
+
+/**
+ * 转换结果缓存
+ * 以源文档内容的SHA-256加转换器选项为键保存转换后的PDF,相同文档再次打印时无需重新转换
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class ConversionCache {
+
+    private final DiskLruCache cache;
+
+    public ConversionCache(DiskLruCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 计算缓存键
+     * @param source 源文档内容
+     * @param options 转换器名称及影响输出的选项
+     */
+    public String key(DocumentContent source, String options) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = source.openStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) 0);
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        return DiskLruCache.toHex(digest.digest());
+    }
+
+    /**
+     * 查找转换结果
+     * @return 缓存的PDF内容(关闭时释放,不删除缓存文件),未命中返回null
+     */
+    public DocumentContent get(String key) {
+        DiskLruCache.Entry entry = cache.acquire(key);
+        return entry == null ? null : cache.toContent(entry, "pdf");
+    }
+
+    /**
+     * 保存转换结果,PDF文件被移入缓存
+     * @return 缓存的PDF内容
+     */
+    public DocumentContent put(String key, File pdfFile) throws IOException {
+        Properties metadata = new Properties();
+        metadata.setProperty("createdAt", String.valueOf(System.currentTimeMillis()));
+        return cache.putFile(key, pdfFile, "pdf", metadata);
+    }
+
+    /**
+     * 保存转换结果
+     * 文件内容被移入缓存并返回缓存内容;内存内容写入缓存后仍返回原内存内容,避免打印时再读磁盘
+     */
+    public DocumentContent put(String key, DocumentContent pdf) throws IOException {
+        if (!pdf.isInMemory()) {
+            DocumentContent cached = put(key, pdf.toFile());
+            pdf.close();
+            return cached;
+        }
+        Properties metadata = new Properties();
+        metadata.setProperty("createdAt", String.valueOf(System.currentTimeMillis()));
+        try (InputStream in = pdf.openStream()) {
+            cache.put(key, in, "pdf", metadata, 0).close();
+        }
+        return pdf;
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        return cache.getStatistics();
+    }
+}
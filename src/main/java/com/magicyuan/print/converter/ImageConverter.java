@@ -1,26 +1,46 @@
 package com.magicyuan.print.converter;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SampleModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.zip.DeflaterOutputStream;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
+import com.magicyuan.print.config.AppConfig;
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.document.SpoolingOutputStream;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * 图片转换器
- * 将图片格式(PNG/JPG/GIF/BMP)转换为PDF
+ * 将图片格式(PNG/JPG/GIF/BMP/TIFF)转换为PDF,按目标打印分辨率降采样,多页TIFF每帧一页
  * 
  * @author Magic_yuan
  * @version 2.1.0
@@ -29,78 +49,268 @@ public class ImageConverter {
 
     private static final Logger logger = LoggerFactory.getLogger(ImageConverter.class);
 
+    /** 原图超过目标像素该倍数时才降采样,避免对接近目标的图片做无意义的重新编码 */
+    private static final float DOWNSAMPLE_MIN_RATIO = 1.25f;
+
+    private final ConversionCache conversionCache;
+
+    /**
+     * @param conversionCache 转换结果缓存,为null时不缓存
+     */
+    public ImageConverter(ConversionCache conversionCache) {
+        this.conversionCache = conversionCache;
+    }
+
     /**
-     * 从URL下载并转换图片为PDF
-     * 
-     * @param imageUrl 图片URL
-     * @return 转换后的PDF文件
+     * 转换已获取的图片内容为PDF,相同内容命中缓存时直接返回
+     *
+     * @param content 图片内容
+     * @param dpi 目标打印分辨率,0表示不降采样
+     * @return 转换后的PDF内容,使用完后需close()
      */
-    public File convertFromUrl(String imageUrl) throws Exception {
-        logger.info("开始转换图片: {}", imageUrl);
+    public DocumentContent convert(DocumentContent content, int dpi) throws Exception {
+        logger.info("开始转换图片内容: {} 字节", content.length());
 
-        // 下载图片到临时文件
-        Path tempInput = Files.createTempFile("printbridge_img_", getExtensionFromUrl(imageUrl));
-        
+        String cacheKey = null;
+        if (conversionCache != null) {
+            cacheKey = conversionCache.key(content, "image:pdf:" + content.getExtension() + ":dpi=" + dpi);
+            DocumentContent cached = conversionCache.get(cacheKey);
+            if (cached != null) {
+                logger.info("转换缓存命中,跳过图片转换");
+                return cached;
+            }
+        }
+
+        DocumentContent pdf = convertContent(content, dpi);
+        if (conversionCache == null) {
+            return pdf;
+        }
         try {
-            // 下载图片
-            URL url = new URL(imageUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(30000);
-            
-            try (InputStream in = connection.getInputStream()) {
-                BufferedImage image = ImageIO.read(in);
-                if (image == null) {
-                    throw new IllegalArgumentException("无法读取图片,可能格式不支持");
-                }
-                
-                // 保存到临时文件
-                String format = getImageFormat(imageUrl);
-                ImageIO.write(image, format, tempInput.toFile());
+            return conversionCache.put(cacheKey, pdf);
+        } catch (IOException e) {
+            if (!pdf.isInMemory() && !pdf.toFile().exists()) {
+                throw e;
             }
-            
-            logger.info("图片下载完成,开始转换为PDF...");
-
-            // 转换为PDF
-            File pdfFile = imageToPdf(tempInput.toFile());
-            
-            logger.info("图片转换完成");
-            
-            return pdfFile;
-            
-        } finally {
-            // 清理输入临时文件
+            logger.warn("写入转换缓存失败: {}", e.getMessage());
+            return pdf;
+        }
+    }
+
+    /**
+     * 将图片内容转换为PDF
+     * 先只读取文件头获得尺寸,按页面上的实际打印尺寸和目标dpi计算所需像素:
+     * 不需要降采样的JPEG按原始字节嵌入(DCT直通),其他情况只解码一次(可能时在解码阶段按整数倍抽样);
+     * 多页TIFF逐帧解码,每帧一页,写入页面后即释放,PDF数据超过阈值时放在临时文件中
+     */
+    private DocumentContent convertContent(DocumentContent content, int dpi) throws Exception {
+        MemoryUsageSetting memoryUsage = MemoryUsageSetting.setupMixed(AppConfig.Image.OUTPUT_MEMORY_THRESHOLD)
+            .setTempDir(DocumentContent.getTempDirectory().toFile());
+
+        try (ImageInputStream input = openImageInputStream(content);
+             PDDocument document = new PDDocument(memoryUsage)) {
+            ImageReader reader = getImageReader(input);
             try {
-                Files.deleteIfExists(tempInput);
-            } catch (Exception e) {
-                logger.warn("清理临时文件失败: {}", e.getMessage());
+                boolean jpeg = "jpeg".equalsIgnoreCase(reader.getFormatName());
+                // GIF的后续帧是相对前一帧的增量,打印只取第一帧
+                boolean multiFrame = !jpeg && !"gif".equalsIgnoreCase(reader.getFormatName());
+
+                int pages = 0;
+                do {
+                    int width;
+                    int height;
+                    try {
+                        width = reader.getWidth(pages);
+                        height = reader.getHeight(pages);
+                    } catch (IndexOutOfBoundsException e) {
+                        break;
+                    }
+                    addFrame(document, content, reader, pages, width, height, jpeg, dpi);
+                    pages++;
+                } while (multiFrame);
+
+                if (pages == 0) {
+                    throw new IllegalArgumentException("图片不包含任何帧");
+                }
+                if (pages > 1) {
+                    logger.info("多帧图片已转换: {} 页", pages);
+                }
+            } finally {
+                reader.dispose();
+            }
+
+            try (SpoolingOutputStream out = new SpoolingOutputStream(AppConfig.Image.OUTPUT_MEMORY_THRESHOLD, 0, "pdf")) {
+                document.save(out);
+                logger.info("图片转换完成: {} 字节", out.size());
+                return out.toContent();
             }
         }
     }
 
     /**
-     * 将图片转换为PDF
+     * 将一帧写入新页面
      */
-    private File imageToPdf(File imageFile) throws Exception {
-        // 读取图片
-        BufferedImage image = ImageIO.read(imageFile);
-        if (image == null) {
-            throw new IllegalArgumentException("无法读取图片文件");
+    private void addFrame(PDDocument document, DocumentContent content, ImageReader reader, int index,
+                          int width, int height, boolean jpeg, int dpi) throws IOException {
+        PageLayout layout = new PageLayout(width, height);
+        int targetWidth = layout.targetPixels(layout.drawWidth, dpi);
+        int targetHeight = layout.targetPixels(layout.drawHeight, dpi);
+        boolean downsample = dpi > 0 && (width > targetWidth * DOWNSAMPLE_MIN_RATIO || height > targetHeight * DOWNSAMPLE_MIN_RATIO);
+
+        PDImageXObject pdImage;
+        if (jpeg && !downsample) {
+            try (InputStream in = content.openStream()) {
+                pdImage = JPEGFactory.createFromStream(document, in);
+            }
+            logger.info("JPEG图片直接嵌入: {}x{}", width, height);
+        } else {
+            BufferedImage image = decode(reader, index, width, height,
+                downsample ? targetWidth : width, downsample ? targetHeight : height);
+            if (jpeg) {
+                pdImage = JPEGFactory.createFromImage(document, image, AppConfig.Image.JPEG_QUALITY);
+            } else if (isPackedBilevel(image)) {
+                // 黑白传真/扫描页:直接压缩1位打包的栅格数据,避免逐像素编码
+                pdImage = createBilevelImage(document, image);
+            } else {
+                pdImage = LosslessFactory.createFromImage(document, image);
+            }
+            logger.debug("第{}帧解码完成: {}x{} -> {}x{}{}", index + 1, width, height, image.getWidth(), image.getHeight(),
+                downsample ? " (目标 " + dpi + " dpi)" : "");
+        }
+
+        addImagePage(document, pdImage, layout);
+    }
+
+    /**
+     * 是否为按行1位打包(与PDF 1位灰度图像布局相同)的黑白图片
+     */
+    private boolean isPackedBilevel(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_BINARY || image.getColorModel().getPixelSize() != 1
+            || !(image.getColorModel() instanceof IndexColorModel)) {
+            return false;
         }
+        SampleModel sampleModel = image.getRaster().getSampleModel();
+        return sampleModel instanceof MultiPixelPackedSampleModel
+            && ((MultiPixelPackedSampleModel) sampleModel).getDataBitOffset() == 0
+            && ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride() == (image.getWidth() + 7) / 8
+            && image.getRaster().getDataBuffer() instanceof DataBufferByte
+            && image.getRaster().getSampleModelTranslateX() == 0
+            && image.getRaster().getSampleModelTranslateY() == 0;
+    }
 
-        // 创建PDF文档
-        PDDocument document = new PDDocument();
-        
+    /**
+     * 将1位打包的栅格数据Flate压缩后作为DeviceGray图像嵌入
+     */
+    private PDImageXObject createBilevelImage(PDDocument document, BufferedImage image) throws IOException {
+        byte[] packed = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int length = (image.getWidth() + 7) / 8 * image.getHeight();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(1024, length / 8));
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(packed, 0, length);
+        }
+
+        PDImageXObject pdImage = new PDImageXObject(document, new ByteArrayInputStream(compressed.toByteArray()),
+            COSName.FLATE_DECODE, image.getWidth(), image.getHeight(), 1, PDDeviceGray.INSTANCE);
+
+        // 调色板索引0为白色(WhiteIsZero)时反转解码
+        IndexColorModel colorModel = (IndexColorModel) image.getColorModel();
+        if ((colorModel.getRGB(0) & 0xFFFFFF) == 0xFFFFFF) {
+            COSArray decode = new COSArray();
+            decode.add(COSInteger.ONE);
+            decode.add(COSInteger.ZERO);
+            pdImage.getCOSObject().setItem(COSName.DECODE, decode);
+        }
+        return pdImage;
+    }
+
+    private ImageInputStream openImageInputStream(DocumentContent content) throws IOException {
+        ImageInputStream input = content.isInMemory()
+            ? new MemoryCacheImageInputStream(content.openStream())
+            : ImageIO.createImageInputStream(content.toFile());
+        if (input == null) {
+            throw new IOException("无法打开图片内容");
+        }
+        return input;
+    }
+
+    private ImageReader getImageReader(ImageInputStream input) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IllegalArgumentException("无法读取图片,可能格式不支持");
+        }
+        ImageReader reader = readers.next();
+        // TIFF的IFD可能位于任意位置,不能只向前读取
+        reader.setInput(input, false);
+        return reader;
+    }
+
+    /**
+     * 解码指定帧并缩小到目标像素:先在解码阶段按整数倍抽样(允许略低于目标分辨率,不低于其1/DOWNSAMPLE_MIN_RATIO),
+     * 抽样后仍明显偏大时再平滑缩放
+     */
+    private BufferedImage decode(ImageReader reader, int index, int width, int height, int targetWidth, int targetHeight) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = subsamplingFactor(width, height, targetWidth, targetHeight);
+        if (subsampling >= 2) {
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+        BufferedImage image = reader.read(index, param);
+
+        if (image.getWidth() <= targetWidth * DOWNSAMPLE_MIN_RATIO && image.getHeight() <= targetHeight * DOWNSAMPLE_MIN_RATIO) {
+            return image;
+        }
+        return resize(image, targetWidth, targetHeight);
+    }
+
+    /**
+     * 解码时的整数抽样倍数:抽样后的像素数不低于目标的1/DOWNSAMPLE_MIN_RATIO,小于2时不抽样
+     */
+    static int subsamplingFactor(int width, int height, int targetWidth, int targetHeight) {
+        return (int) Math.min(width * DOWNSAMPLE_MIN_RATIO / Math.max(1, targetWidth),
+            height * DOWNSAMPLE_MIN_RATIO / Math.max(1, targetHeight));
+    }
+
+    private BufferedImage resize(BufferedImage image, int targetWidth, int targetHeight) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(targetWidth, targetHeight, type);
+        Graphics2D graphics = resized.createGraphics();
         try {
-            // 根据图片尺寸确定页面大小
-            float imageWidth = image.getWidth();
-            float imageHeight = image.getHeight();
-            
-            // 如果图片太大,按A4纸比例缩放
-            PDRectangle pageSize;
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    /**
+     * 添加一页并将图片居中绘制
+     */
+    private void addImagePage(PDDocument document, PDImageXObject pdImage, PageLayout layout) throws IOException {
+        PDPage page = new PDPage(layout.pageSize);
+        document.addPage(page);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            float x = (layout.pageSize.getWidth() - layout.drawWidth) / 2;
+            float y = (layout.pageSize.getHeight() - layout.drawHeight) / 2;
+            contentStream.drawImage(pdImage, x, y, layout.drawWidth, layout.drawHeight);
+        }
+    }
+
+    /**
+     * 页面布局:以原始像素尺寸作为点数确定页面大小(超过A4时缩小),图片保持宽高比居中
+     */
+    private static final class PageLayout {
+
+        private final PDRectangle pageSize;
+        private final float drawWidth;
+        private final float drawHeight;
+
+        private PageLayout(float imageWidth, float imageHeight) {
             float maxWidth = PDRectangle.A4.getWidth();
             float maxHeight = PDRectangle.A4.getHeight();
-            
+
             if (imageWidth > imageHeight) {
                 // 横向图片
                 pageSize = new PDRectangle(
@@ -114,39 +324,20 @@ public class ImageConverter {
                     Math.min(imageHeight, maxHeight)
                 );
             }
-            
-            // 创建页面
-            PDPage page = new PDPage(pageSize);
-            document.addPage(page);
-
-            // 将图片添加到PDF
-            PDImageXObject pdImage = PDImageXObject.createFromFileByContent(imageFile, document);
-            
-            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                // 计算图片在页面上的位置和大小(保持宽高比,居中)
-                float scale = Math.min(
-                    pageSize.getWidth() / imageWidth,
-                    pageSize.getHeight() / imageHeight
-                );
-                
-                float scaledWidth = imageWidth * scale;
-                float scaledHeight = imageHeight * scale;
-                
-                float x = (pageSize.getWidth() - scaledWidth) / 2;
-                float y = (pageSize.getHeight() - scaledHeight) / 2;
-                
-                contentStream.drawImage(pdImage, x, y, scaledWidth, scaledHeight);
-            }
 
-            // 保存为临时PDF文件
-            Path tempOutput = Files.createTempFile("printbridge_pdf_", ".pdf");
-            File pdfFile = tempOutput.toFile();
-            document.save(pdfFile);
-            
-            return pdfFile;
-            
-        } finally {
-            document.close();
+            float scale = Math.min(
+                pageSize.getWidth() / imageWidth,
+                pageSize.getHeight() / imageHeight
+            );
+            drawWidth = imageWidth * scale;
+            drawHeight = imageHeight * scale;
+        }
+
+        /**
+         * 按打印尺寸(点,1/72英寸)计算目标分辨率下的像素数
+         */
+        private int targetPixels(float points, int dpi) {
+            return Math.max(1, (int) Math.ceil(points / 72f * dpi));
         }
     }
 
@@ -159,41 +350,4 @@ public class ImageConverter {
                ext.equals("png") || ext.equals("gif") ||
                ext.equals("bmp") || ext.equals("tif") || ext.equals("tiff");
     }
-
-    /**
-     * 从URL获取文件扩展名
-     */
-    private String getExtensionFromUrl(String url) {
-        String path = url.substring(url.lastIndexOf('/') + 1);
-        
-        // 移除查询参数
-        int queryIndex = path.indexOf('?');
-        if (queryIndex > 0) {
-            path = path.substring(0, queryIndex);
-        }
-        
-        int lastDot = path.lastIndexOf('.');
-        return (lastDot > 0) ? path.substring(lastDot) : ".jpg";
-    }
-
-    /**
-     * 获取图片格式
-     */
-    private String getImageFormat(String url) {
-        String ext = getExtensionFromUrl(url).toLowerCase().replace(".", "");
-        
-        // ImageIO支持的格式
-        if (ext.equals("jpg") || ext.equals("jpeg")) {
-            return "jpg";
-        } else if (ext.equals("png")) {
-            return "png";
-        } else if (ext.equals("gif")) {
-            return "gif";
-        } else if (ext.equals("bmp")) {
-            return "bmp";
-        } else {
-            return "jpg";  // 默认
-        }
-    }
 }
-
@@ -1,18 +1,22 @@
 package com.magicyuan.print.converter;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-
-import org.jodconverter.core.DocumentConverter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.magicyuan.print.config.AppConfig;
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.document.SpoolingOutputStream;
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFormat;
 import org.jodconverter.core.office.OfficeException;
-import org.jodconverter.core.office.OfficeManager;
-import org.jodconverter.local.LocalConverter;
-import org.jodconverter.local.office.LocalOfficeManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,25 +31,47 @@ public class OfficeConverter {
 
     private static final Logger logger = LoggerFactory.getLogger(OfficeConverter.class);
 
-    private OfficeManager officeManager;
-    private DocumentConverter converter;
-    private boolean isAvailable = false;
+    private volatile OfficeProcessPool processPool;
+    private volatile boolean shutdown;
+    private final ConversionCache conversionCache;
+
+    /** 初始化完成时以是否可用完成 */
+    private final CompletableFuture<Boolean> readiness = new CompletableFuture<>();
+    private final long initStartedAt = System.currentTimeMillis();
+    private volatile long initMillis = -1;
+
+    /**
+     * 构造函数,在后台线程检测LibreOffice并初始化,不阻塞调用方
+     * @param conversionCache 转换结果缓存,为null时不缓存
+     */
+    public OfficeConverter(ConversionCache conversionCache) {
+        this.conversionCache = conversionCache;
+
+        Thread initThread = new Thread(this::initialize, "office-init");
+        initThread.setDaemon(true);
+        initThread.start();
+    }
 
     /**
-     * 构造函数,自动检测LibreOffice并初始化
+     * 检测LibreOffice并启动进程池,完成后通知readiness
      */
-    public OfficeConverter() {
+    private void initialize() {
+        boolean available = false;
         try {
             String libreOfficePath = detectLibreOfficePath();
             
             if (libreOfficePath != null) {
                 initializeConverter(libreOfficePath);
+                available = !shutdown;
             } else {
                 logger.warn("未检测到LibreOffice安装,Office格式转换功能不可用");
                 logger.warn("如需支持Word/Excel/PPT格式,请安装LibreOffice: https://www.libreoffice.org/");
             }
         } catch (Exception e) {
             logger.error("初始化Office转换器失败: {}", e.getMessage(), e);
+        } finally {
+            initMillis = System.currentTimeMillis() - initStartedAt;
+            readiness.complete(available);
         }
     }
 
@@ -55,22 +81,24 @@ public class OfficeConverter {
     private void initializeConverter(String libreOfficePath) throws OfficeException {
         logger.info("初始化Office转换器,LibreOffice路径: {}", libreOfficePath);
 
-        // 创建OfficeManager
-        // JODConverter 4.4.6 简化配置
-        officeManager = LocalOfficeManager.builder()
-            .officeHome(libreOfficePath)
-            .taskExecutionTimeout(120_000L)  // 任务超时2分钟
-            .maxTasksPerProcess(50)  // 每个实例处理50个任务后重启,避免内存泄漏
-            .build();
-
-        // 启动OfficeManager
-        officeManager.start();
-
-        // 创建转换器
-        converter = LocalConverter.make(officeManager);
-
-        isAvailable = true;
-        logger.info("Office转换器初始化成功");
+        // 多个独立端口的soffice进程,转换任务分摊到各实例并行执行,实例数随负载伸缩
+        processPool = new OfficeProcessPool(libreOfficePath,
+            AppConfig.Office.MIN_SIZE,
+            AppConfig.Office.POOL_SIZE,
+            AppConfig.Office.BASE_PORT,
+            AppConfig.Office.TASK_TIMEOUT_MS,
+            AppConfig.Office.MAX_TASKS_PER_PROCESS,
+            AppConfig.Office.QUEUE_TIMEOUT_MS,
+            AppConfig.Office.SCALE_UP_WAIT_MS,
+            AppConfig.Office.IDLE_TIMEOUT_MS);
+        processPool.start();
+
+        // 初始化期间已关闭服务,启动完成后立即停止
+        if (shutdown) {
+            processPool.stop();
+            return;
+        }
+        logger.info("Office转换器初始化成功,耗时 {} ms", System.currentTimeMillis() - initStartedAt);
     }
 
     /**
@@ -114,54 +142,59 @@ public class OfficeConverter {
     }
 
     /**
-     * 从URL下载并转换Office文档为PDF
-     * 
-     * @param fileUrl 文档URL
-     * @return 转换后的PDF文件
+     * 转换已获取的Office文档,相同内容命中缓存时不再调用LibreOffice
+     *
+     * @param content 文档内容
+     * @return 转换后的PDF内容,使用完后需close()
      */
-    public File convertFromUrl(String fileUrl) throws Exception {
-        if (!isAvailable) {
-            throw new IllegalStateException("Office转换器不可用,请安装LibreOffice");
+    public DocumentContent convert(DocumentContent content) throws Exception {
+        ensureReady();
+
+        String cacheKey = null;
+        if (conversionCache != null) {
+            cacheKey = conversionCache.key(content, "office:pdf:" + content.getExtension());
+            DocumentContent cached = conversionCache.get(cacheKey);
+            if (cached != null) {
+                logger.info("转换缓存命中,跳过LibreOffice转换");
+                return cached;
+            }
         }
 
-        logger.info("开始转换Office文档: {}", fileUrl);
-
-        // 下载文件到临时目录
-        Path tempInput = Files.createTempFile("printbridge_input_", getExtensionFromUrl(fileUrl));
-        
+        DocumentContent pdf = convertToPdf(content);
+        if (conversionCache == null) {
+            return pdf;
+        }
         try {
-            // 下载文件
-            URL url = new URL(fileUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(30000);
-            
-            try (InputStream in = connection.getInputStream()) {
-                Files.copy(in, tempInput, StandardCopyOption.REPLACE_EXISTING);
+            return conversionCache.put(cacheKey, pdf);
+        } catch (IOException e) {
+            // 文件可能已被移入缓存后才失败,此时无法再使用原内容
+            if (!pdf.isInMemory() && !pdf.toFile().exists()) {
+                throw e;
             }
-            
-            logger.info("文件下载完成: {}", tempInput.getFileName());
-
-            // 创建临时PDF输出文件
-            Path tempOutput = Files.createTempFile("printbridge_output_", ".pdf");
+            logger.warn("写入转换缓存失败: {}", e.getMessage());
+            return pdf;
+        }
+    }
 
-            // 执行转换
-            logger.info("正在转换为PDF...");
-            converter.convert(tempInput.toFile())
-                    .to(tempOutput.toFile())
-                    .execute();
+    /**
+     * 执行转换:小文档以流方式送入LibreOffice,PDF结果在内存中(过大时溢出到临时文件);
+     * 大文档或无法识别格式时按文件转换
+     */
+    private DocumentContent convertToPdf(DocumentContent content) throws Exception {
+        DocumentFormat inputFormat = DefaultDocumentFormatRegistry.getFormatByExtension(content.getExtension());
+        if (inputFormat == null || content.length() > AppConfig.Office.STREAM_THRESHOLD) {
+            logger.info("正在转换为PDF(文件方式)...");
+            return DocumentContent.ofFile(convert(content.toFile()), "pdf", true);
+        }
 
-            logger.info("转换完成: {}", tempOutput.getFileName());
-            
-            return tempOutput.toFile();
-            
-        } finally {
-            // 清理输入临时文件
-            try {
-                Files.deleteIfExists(tempInput);
-            } catch (Exception e) {
-                logger.warn("清理临时文件失败: {}", e.getMessage());
-            }
+        ensureReady();
+        logger.info("正在转换为PDF(流方式)...");
+        try (InputStream in = content.openStream();
+             SpoolingOutputStream out = new SpoolingOutputStream(AppConfig.Office.STREAM_THRESHOLD, 0, "pdf")) {
+            processPool.convert(in, inputFormat, out);
+            DocumentContent pdf = out.toContent();
+            logger.info("转换完成: {} 字节{}", pdf.length(), pdf.isInMemory() ? "(内存)" : "");
+            return pdf;
         }
     }
 
@@ -169,16 +202,14 @@ public class OfficeConverter {
      * 转换本地文件
      */
     public File convert(File inputFile) throws Exception {
-        if (!isAvailable) {
-            throw new IllegalStateException("Office转换器不可用,请安装LibreOffice");
-        }
+        ensureReady();
 
-        Path outputPath = Files.createTempFile("printbridge_output_", ".pdf");
+        Path outputPath = DocumentContent.createTempFile("printbridge_output_", ".pdf");
         File outputFile = outputPath.toFile();
 
         logger.info("转换文档: {} -> {}", inputFile.getName(), outputFile.getName());
 
-        converter.convert(inputFile).to(outputFile).execute();
+        processPool.convert(inputFile, outputFile);
 
         logger.info("转换完成: {}", outputFile.getAbsolutePath());
         return outputFile;
@@ -188,14 +219,50 @@ public class OfficeConverter {
      * 检查是否可用
      */
     public boolean isAvailable() {
-        return isAvailable;
+        return readiness.getNow(false);
+    }
+
+    /**
+     * 初始化是否仍在进行中
+     */
+    public boolean isInitializing() {
+        return !readiness.isDone();
+    }
+
+    /**
+     * 获取初始化结果,完成时以是否可用完成
+     */
+    public CompletableFuture<Boolean> getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * 等待初始化完成
+     * @return 是否可用,等待超时返回false
+     */
+    public boolean awaitReady() throws InterruptedException {
+        try {
+            return readiness.get(AppConfig.Office.STARTUP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("等待Office转换器初始化超时: {} ms", AppConfig.Office.STARTUP_TIMEOUT_MS);
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    private void ensureReady() throws InterruptedException {
+        if (!awaitReady()) {
+            throw new IllegalStateException("Office转换器不可用,请安装LibreOffice");
+        }
     }
 
     /**
      * 检查是否支持该格式
      */
     public boolean isSupportedFormat(String fileExtension) {
-        if (!isAvailable) {
+        // 初始化期间按可用处理,转换时再等待初始化结果
+        if (readiness.isDone() && !isAvailable()) {
             return false;
         }
 
@@ -212,31 +279,30 @@ public class OfficeConverter {
      * 关闭转换器
      */
     public void shutdown() {
-        if (officeManager != null && officeManager.isRunning()) {
-            try {
-                logger.info("关闭Office转换器...");
-                officeManager.stop();
-                logger.info("Office转换器已关闭");
-            } catch (OfficeException e) {
-                logger.error("关闭Office转换器失败: {}", e.getMessage(), e);
-            }
+        shutdown = true;
+        if (processPool != null) {
+            logger.info("关闭Office转换器...");
+            processPool.stop();
+            logger.info("Office转换器已关闭");
         }
     }
 
     /**
-     * 从URL获取文件扩展名
+     * 获取LibreOffice进程池统计信息
      */
-    private String getExtensionFromUrl(String url) {
-        String path = url.substring(url.lastIndexOf('/') + 1);
-        
-        // 移除查询参数
-        int queryIndex = path.indexOf('?');
-        if (queryIndex > 0) {
-            path = path.substring(0, queryIndex);
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("available", isAvailable());
+        stats.put("initializing", isInitializing());
+        if (initMillis >= 0) {
+            stats.put("initMillis", initMillis);
         }
-        
-        int lastDot = path.lastIndexOf('.');
-        return (lastDot > 0) ? path.substring(lastDot) : ".tmp";
+        OfficeProcessPool pool = processPool;
+        if (pool != null) {
+            stats.putAll(pool.getStatistics());
+        }
+        return stats;
     }
+
 }
 
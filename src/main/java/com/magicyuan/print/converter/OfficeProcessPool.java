@@ -0,0 +1,421 @@
+package com.magicyuan.print.converter;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.magicyuan.print.document.DocumentContent;
+import org.jodconverter.core.DocumentConverter;
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFormat;
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.local.LocalConverter;
+import org.jodconverter.local.office.LocalOfficeManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LibreOffice进程池
+ * 每个实例是一个独立端口的LocalOfficeManager(单个soffice进程),空闲实例放在阻塞队列中,
+ * 转换任务取出一个空闲实例执行,完成后归还,使多个转换可以并行;
+ * 实例数在最小值和最大值之间伸缩:全部实例忙且有排队或等待超过阈值时启动新实例,空闲超时的实例被停止
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class OfficeProcessPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfficeProcessPool.class);
+
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+
+    private final String officeHome;
+    private final int minSize;
+    private final int maxSize;
+    private final int basePort;
+    private final long taskTimeoutMillis;
+    private final int maxTasksPerProcess;
+    private final long queueTimeoutMillis;
+    private final long scaleUpWaitMillis;
+    private final long idleTimeoutMillis;
+
+    private final List<Instance> instances = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Instance> idle = new LinkedBlockingQueue<>();
+
+    /** 端口槽位占用情况、正在启动的实例数及是否已停止,受this锁保护 */
+    private final boolean[] slots;
+    private int starting;
+    private boolean stopped;
+
+    private final ScheduledExecutorService scaler;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong scaleUpCount = new AtomicLong();
+    private final AtomicLong scaleDownCount = new AtomicLong();
+    private final AtomicLong startFailureCount = new AtomicLong();
+
+    /**
+     * @param officeHome LibreOffice安装目录
+     * @param minSize 最少保持运行的实例数,可为0
+     * @param maxSize 最大实例数
+     * @param basePort 第一个端口槽位,其余槽位依次递增
+     * @param taskTimeoutMillis 单个转换任务超时(毫秒)
+     * @param maxTasksPerProcess 每个进程处理该数量的任务后重启
+     * @param queueTimeoutMillis 等待空闲实例的超时(毫秒)
+     * @param scaleUpWaitMillis 等待空闲实例超过该时间时扩容(毫秒)
+     * @param idleTimeoutMillis 实例空闲超过该时间时停止(毫秒),小于等于0表示不缩容
+     */
+    public OfficeProcessPool(String officeHome, int minSize, int maxSize, int basePort, long taskTimeoutMillis,
+                             int maxTasksPerProcess, long queueTimeoutMillis, long scaleUpWaitMillis, long idleTimeoutMillis) {
+        this.officeHome = officeHome;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.basePort = basePort;
+        this.taskTimeoutMillis = taskTimeoutMillis;
+        this.maxTasksPerProcess = maxTasksPerProcess;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.scaleUpWaitMillis = Math.max(0, scaleUpWaitMillis);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.slots = new boolean[this.maxSize];
+
+        this.scaler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "office-pool-scaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启动最少数量的实例并开始空闲检查
+     * @throws OfficeException 要求的预热实例一个都没有启动成功
+     */
+    public void start() throws OfficeException {
+        OfficeException lastFailure = null;
+        for (int i = 0; i < minSize; i++) {
+            try {
+                startInstance("预热");
+            } catch (OfficeException e) {
+                lastFailure = e;
+            }
+        }
+        if (minSize > 0 && instances.isEmpty()) {
+            throw lastFailure;
+        }
+
+        if (idleTimeoutMillis > 0) {
+            long period = Math.max(1000, idleTimeoutMillis / 4);
+            scaler.scheduleWithFixedDelay(this::stopIdleInstances, period, period, TimeUnit.MILLISECONDS);
+        }
+        logger.info("LibreOffice进程池已启动: {} 个实例(最少{},最多{})", instances.size(), minSize, maxSize);
+    }
+
+    /**
+     * 在空闲实例上执行转换,所有实例忙时排队等待
+     */
+    public void convert(File inputFile, File outputFile) throws Exception {
+        execute(converter -> converter.convert(inputFile).to(outputFile).execute());
+    }
+
+    /**
+     * 在空闲实例上以流方式转换为PDF,不关闭传入的流
+     * @param inputFormat 输入格式
+     */
+    public void convert(InputStream in, DocumentFormat inputFormat, OutputStream out) throws Exception {
+        execute(converter -> converter.convert(in, false).as(inputFormat)
+            .to(out, false).as(DefaultDocumentFormatRegistry.PDF).execute());
+    }
+
+    private void execute(ConversionTask task) throws Exception {
+        Instance instance = acquire();
+        long start = System.currentTimeMillis();
+        try {
+            task.run(LocalConverter.make(instance.manager));
+            instance.completed.incrementAndGet();
+        } catch (Exception e) {
+            instance.failed.incrementAndGet();
+            throw e;
+        } finally {
+            instance.busyMillis.addAndGet(System.currentTimeMillis() - start);
+            instance.lastUsed = System.currentTimeMillis();
+            idle.offer(instance);
+        }
+    }
+
+    private Instance acquire() throws InterruptedException, OfficeException {
+        long start = System.currentTimeMillis();
+        waiting.incrementAndGet();
+        Instance instance;
+        try {
+            instance = idle.poll();
+            if (instance == null) {
+                // 没有任何实例(最少实例数为0)时立即启动,否则等待一段时间再扩容
+                if (instances.isEmpty()) {
+                    scaleUpAsync("首个请求");
+                } else {
+                    instance = idle.poll(scaleUpWaitMillis, TimeUnit.MILLISECONDS);
+                    if (instance == null) {
+                        scaleUpAsync("等待超过" + scaleUpWaitMillis + "ms");
+                    }
+                }
+                if (instance == null) {
+                    long remaining = queueTimeoutMillis - (System.currentTimeMillis() - start);
+                    instance = idle.poll(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+                }
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        long waited = System.currentTimeMillis() - start;
+        if (instance == null) {
+            timeoutCount.incrementAndGet();
+            throw new OfficeException("等待空闲LibreOffice实例超时: " + waited + "ms");
+        }
+        acquireCount.incrementAndGet();
+        totalWaitMillis.addAndGet(waited);
+        maxWaitMillis.accumulateAndGet(waited, Math::max);
+
+        // 最后一个空闲实例被取走且仍有转换在排队时,提前准备下一个
+        if (idle.isEmpty() && waiting.get() > 0) {
+            scaleUpAsync("全部实例忙");
+        }
+        return instance;
+    }
+
+    /**
+     * 在后台启动一个新实例(已达上限或已有实例在启动时忽略)
+     */
+    private void scaleUpAsync(String reason) {
+        synchronized (this) {
+            if (stopped || starting > 0 || instances.size() >= maxSize) {
+                return;
+            }
+            starting++;
+        }
+        try {
+            scaler.execute(() -> {
+                try {
+                    startInstance(reason);
+                } catch (OfficeException e) {
+                    // 启动失败已记录日志,等待方会在超时后失败
+                } finally {
+                    synchronized (this) {
+                        starting--;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 进程池已停止
+            synchronized (this) {
+                starting--;
+            }
+        }
+    }
+
+    private Instance startInstance(String reason) throws OfficeException {
+        int slot;
+        synchronized (this) {
+            if (stopped) {
+                throw new OfficeException("LibreOffice进程池已停止");
+            }
+            slot = -1;
+            for (int i = 0; i < slots.length; i++) {
+                if (!slots[i]) {
+                    slot = i;
+                    break;
+                }
+            }
+            if (slot < 0) {
+                throw new OfficeException("LibreOffice实例数已达上限: " + maxSize);
+            }
+            slots[slot] = true;
+        }
+
+        Instance instance = new Instance(slot, basePort + slot);
+        try {
+            instance.start();
+        } catch (OfficeException e) {
+            synchronized (this) {
+                slots[slot] = false;
+            }
+            startFailureCount.incrementAndGet();
+            logger.error("LibreOffice实例{}启动失败(端口{}): {}", slot, instance.port, e.getMessage());
+            throw e;
+        }
+
+        // 启动期间进程池可能已停止,此时stop()不会再看到这个实例,由这里负责关闭
+        boolean discard;
+        synchronized (this) {
+            discard = stopped;
+            if (discard) {
+                slots[slot] = false;
+            } else {
+                instance.lastUsed = System.currentTimeMillis();
+                instances.add(instance);
+                idle.offer(instance);
+            }
+        }
+        if (discard) {
+            instance.stop();
+            throw new OfficeException("LibreOffice进程池已停止");
+        }
+        scaleUpCount.incrementAndGet();
+        logger.info("LibreOffice进程池扩容({}): 实例{}已启动,端口: {},当前实例数: {}", reason, slot, instance.port, instances.size());
+        return instance;
+    }
+
+    /**
+     * 停止空闲超时的实例,保留最少实例数
+     */
+    private void stopIdleInstances() {
+        long now = System.currentTimeMillis();
+        for (Instance instance : instances) {
+            if (instances.size() <= minSize) {
+                return;
+            }
+            // 只有仍在空闲队列中的实例才能被移除,正在转换的实例不受影响
+            if (now - instance.lastUsed >= idleTimeoutMillis && idle.remove(instance)) {
+                instances.remove(instance);
+                instance.stop();
+                synchronized (this) {
+                    slots[instance.index] = false;
+                }
+                scaleDownCount.incrementAndGet();
+                logger.info("LibreOffice进程池缩容: 实例{}空闲{}秒已停止,当前实例数: {}",
+                    instance.index, (now - instance.lastUsed) / 1000, instances.size());
+            }
+        }
+    }
+
+    /**
+     * 停止所有实例
+     */
+    public void stop() {
+        synchronized (this) {
+            stopped = true;
+        }
+        scaler.shutdownNow();
+        try {
+            // 等待正在进行的扩容结束,之后不会再有实例加入
+            if (!scaler.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("等待LibreOffice进程池扩容线程结束超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Instance instance : instances) {
+            instance.stop();
+        }
+        instances.clear();
+        idle.clear();
+    }
+
+    /**
+     * 获取进程池统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long acquired = acquireCount.get();
+        stats.put("size", instances.size());
+        stats.put("minSize", minSize);
+        stats.put("maxSize", maxSize);
+        stats.put("idle", idle.size());
+        stats.put("waiting", waiting.get());
+        stats.put("avgWaitMillis", acquired == 0 ? 0 : totalWaitMillis.get() / acquired);
+        stats.put("maxWaitMillis", maxWaitMillis.get());
+        stats.put("waitTimeouts", timeoutCount.get());
+        stats.put("scaleUps", scaleUpCount.get());
+        stats.put("scaleDowns", scaleDownCount.get());
+        stats.put("startFailures", startFailureCount.get());
+
+        List<Map<String, Object>> instanceStats = new ArrayList<>();
+        for (Instance instance : instances) {
+            instanceStats.add(instance.getStatistics());
+        }
+        stats.put("instances", instanceStats);
+        return stats;
+    }
+
+    /**
+     * 在指定实例的转换器上执行的转换
+     */
+    private interface ConversionTask {
+
+        void run(DocumentConverter converter) throws Exception;
+    }
+
+    /**
+     * 单个LibreOffice实例
+     */
+    private final class Instance {
+
+        private final int index;
+        private final int port;
+        private final LocalOfficeManager manager;
+
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busyMillis = new AtomicLong();
+        private volatile long lastUsed;
+
+        private Instance(int index, int port) {
+            this.index = index;
+            this.port = port;
+            this.manager = LocalOfficeManager.builder()
+                .officeHome(officeHome)
+                .portNumbers(port)
+                .workingDir(DocumentContent.getTempDirectory().toFile())
+                .taskExecutionTimeout(taskTimeoutMillis)
+                .maxTasksPerProcess(maxTasksPerProcess)  // 处理一定数量任务后重启,避免内存泄漏
+                .build();
+        }
+
+        private void start() throws OfficeException {
+            manager.start();
+        }
+
+        private void stop() {
+            if (!manager.isRunning()) {
+                return;
+            }
+            try {
+                manager.stop();
+            } catch (OfficeException e) {
+                logger.error("关闭LibreOffice实例{}失败: {}", index, e.getMessage());
+            }
+        }
+
+        private Map<String, Object> getStatistics() {
+            long tasks = completed.get() + failed.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("index", index);
+            stats.put("port", port);
+            stats.put("running", manager.isRunning());
+            stats.put("completed", completed.get());
+            stats.put("failed", failed.get());
+            stats.put("busyMillis", busyMillis.get());
+            stats.put("idleMillis", System.currentTimeMillis() - lastUsed);
+            // 进程每处理maxTasksPerProcess个任务重启一次
+            stats.put("restarts", maxTasksPerProcess > 0 ? tasks / maxTasksPerProcess : 0);
+            stats.put("tasksSinceRestart", maxTasksPerProcess > 0 ? tasks % maxTasksPerProcess : tasks);
+            return stats;
+        }
+    }
+}
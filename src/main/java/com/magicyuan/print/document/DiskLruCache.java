@@ -0,0 +1,374 @@
+package com.magicyuan.print.document;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 磁盘LRU缓存
+ * 每个条目由数据文件和同名.properties元数据文件组成,按字节总量淘汰最久未使用的条目,重启后从目录恢复;
+ * 正在使用的条目会被引用计数保护,淘汰时延迟到释放后再删除文件
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class DiskLruCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final String META_SUFFIX = ".properties";
+    private static final String META_KEY = "cache.key";
+    private static final String META_FILE = "cache.file";
+
+    private final String name;
+    private final Path directory;
+    private final long maxBytes;
+
+    /** 按访问顺序排列,受this锁保护 */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * @param name 缓存名称(用于日志)
+     * @param directory 缓存目录
+     * @param maxBytes 数据文件总字节数上限
+     */
+    public DiskLruCache(String name, Path directory, long maxBytes) throws IOException {
+        this.name = name;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * 从目录恢复条目,按数据文件修改时间(即最近访问时间)重建LRU顺序
+     */
+    private synchronized void load() throws IOException {
+        List<Entry> loaded = new ArrayList<>();
+        List<Path> dataFiles = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(META_SUFFIX)) {
+                    Entry entry = readEntry(path);
+                    if (entry != null) {
+                        loaded.add(entry);
+                    }
+                } else {
+                    dataFiles.add(path);
+                }
+            }
+        }
+
+        loaded.sort(Comparator.comparingLong(entry -> entry.dataFile.lastModified()));
+        Set<File> referenced = new HashSet<>();
+        for (Entry entry : loaded) {
+            entries.put(entry.key, entry);
+            totalBytes += entry.size;
+            referenced.add(entry.dataFile);
+        }
+
+        // 清理没有元数据的数据文件(写入中断或淘汰未完成)
+        for (Path path : dataFiles) {
+            if (!referenced.contains(path.toFile())) {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        trim();
+        logger.info("{}缓存已加载: {} 个条目, {} 字节, 目录: {}", name, entries.size(), totalBytes, directory);
+    }
+
+    private Entry readEntry(Path metaPath) {
+        Properties metadata = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaPath, StandardCharsets.UTF_8)) {
+            metadata.load(reader);
+        } catch (IOException e) {
+            logger.warn("读取缓存元数据失败: {}", metaPath);
+            return null;
+        }
+
+        String key = metadata.getProperty(META_KEY);
+        String file = metadata.getProperty(META_FILE);
+        File dataFile = file == null ? null : directory.resolve(file).toFile();
+        if (key == null || dataFile == null || !dataFile.isFile()) {
+            try {
+                Files.deleteIfExists(metaPath);
+            } catch (IOException e) {
+                logger.debug("删除无效缓存元数据失败: {}", metaPath);
+            }
+            return null;
+        }
+        return new Entry(key, dataFile, metaPath, metadata, dataFile.length());
+    }
+
+    /**
+     * 查找并锁定条目,命中时需调用release()或通过toContent()返回的内容释放
+     * @return 条目,未命中返回null
+     */
+    public synchronized Entry acquire(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        entry.pins++;
+        // 用修改时间记录最近访问,重启后据此恢复LRU顺序
+        entry.dataFile.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * 释放条目
+     */
+    public synchronized void release(Entry entry) {
+        entry.pins--;
+        if (entry.removed && entry.pins == 0) {
+            deleteQuietly(entry.dataFile.toPath());
+        }
+    }
+
+    /**
+     * 将已锁定的条目包装为文档内容,关闭内容时释放条目
+     */
+    public DocumentContent toContent(Entry entry, String extension) {
+        return DocumentContent.ofFile(entry.dataFile, extension, () -> release(entry));
+    }
+
+    /**
+     * 写入条目(替换同key的旧条目),返回已锁定的新条目内容
+     * @param maxSize 最大字节数,小于等于0表示不限制
+     */
+    public DocumentContent put(String key, InputStream in, String extension, Properties metadata, long maxSize) throws IOException {
+        Path dataPath = newDataPath(key, extension);
+
+        long size = 0;
+        try (OutputStream out = Files.newOutputStream(dataPath)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (maxSize > 0 && size > maxSize) {
+                    throw new DocumentTooLargeException(maxSize);
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            deleteQuietly(dataPath);
+            throw e;
+        }
+        return commit(key, dataPath, size, extension, metadata);
+    }
+
+    /**
+     * 将已生成的文件移入缓存(替换同key的旧条目),返回已锁定的新条目内容
+     * 源文件被移动,调用方不应再删除它
+     */
+    public DocumentContent putFile(String key, File source, String extension, Properties metadata) throws IOException {
+        Path dataPath = newDataPath(key, extension);
+        try {
+            Files.move(source.toPath(), dataPath);
+        } catch (IOException e) {
+            // 不同文件系统之间无法直接移动,改为复制
+            try {
+                Files.copy(source.toPath(), dataPath);
+            } catch (IOException copyFailure) {
+                deleteQuietly(dataPath);
+                throw copyFailure;
+            }
+            deleteQuietly(source.toPath());
+        }
+        return commit(key, dataPath, dataPath.toFile().length(), extension, metadata);
+    }
+
+    private Path newDataPath(String key, String extension) {
+        String suffix = extension == null || extension.isEmpty() ? "" : "." + extension;
+        return directory.resolve(sha256(key) + "-" + sequence.incrementAndGet() + suffix);
+    }
+
+    private DocumentContent commit(String key, Path dataPath, long size, String extension, Properties metadata) throws IOException {
+        Properties stored = new Properties();
+        stored.putAll(metadata);
+        stored.setProperty(META_KEY, key);
+        stored.setProperty(META_FILE, dataPath.getFileName().toString());
+
+        Entry entry = new Entry(key, dataPath.toFile(), directory.resolve(sha256(key) + META_SUFFIX), stored, size);
+        synchronized (this) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                discard(previous);
+            }
+            try {
+                writeMetadata(entry);
+            } catch (IOException e) {
+                deleteQuietly(dataPath);
+                throw e;
+            }
+            entries.put(key, entry);
+            totalBytes += size;
+            entry.pins++;
+            trim();
+        }
+        return toContent(entry, extension);
+    }
+
+    /**
+     * 更新条目元数据(如重新验证时间)
+     */
+    public synchronized void updateMetadata(Entry entry, Properties metadata) {
+        if (entry.removed) {
+            return;
+        }
+        entry.metadata.putAll(metadata);
+        try {
+            writeMetadata(entry);
+        } catch (IOException e) {
+            logger.warn("更新缓存元数据失败: {}", e.getMessage());
+        }
+    }
+
+    private void writeMetadata(Entry entry) throws IOException {
+        Path temp = directory.resolve(entry.metaPath.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            entry.metadata.store(writer, null);
+        }
+        Files.move(temp, entry.metaPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 按LRU顺序淘汰,直到总字节数不超过上限
+     */
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            discard(entry);
+            evictionCount.incrementAndGet();
+            logger.debug("{}缓存淘汰: {}", name, entry.key);
+        }
+    }
+
+    private void discard(Entry entry) {
+        totalBytes -= entry.size;
+        entry.removed = true;
+        deleteQuietly(entry.metaPath);
+        if (entry.pins == 0) {
+            deleteQuietly(entry.dataFile.toPath());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("删除缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 计算字符串的SHA-256十六进制摘要
+     */
+    public static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return toHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 字节数组转十六进制字符串
+     */
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount.get());
+        stats.put("misses", missCount.get());
+        stats.put("evictions", evictionCount.get());
+        return stats;
+    }
+
+    /**
+     * 缓存条目
+     */
+    public static final class Entry {
+
+        private final String key;
+        private final File dataFile;
+        private final Path metaPath;
+        private final Properties metadata;
+        private final long size;
+
+        /** 以下字段受所属缓存的锁保护 */
+        private int pins;
+        private boolean removed;
+
+        private Entry(String key, File dataFile, Path metaPath, Properties metadata, long size) {
+            this.key = key;
+            this.dataFile = dataFile;
+            this.metaPath = metaPath;
+            this.metadata = metadata;
+            this.size = size;
+        }
+
+        /**
+         * 获取元数据的只读副本
+         */
+        public Properties getMetadata() {
+            Properties copy = new Properties();
+            copy.putAll(metadata);
+            return copy;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.magicyuan.print.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.magicyuan.print.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 文档内容
+ * 小文档保存在内存中,大文档保存在临时文件中;使用完后调用close()释放临时文件
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class DocumentContent implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentContent.class);
+
+    private final byte[] data;
+    private final int dataLength;
+    private final File file;
+    private final boolean temporary;
+    private final String extension;
+    private final Runnable releaseHook;
+
+    /** 内存内容按需写出的临时文件 */
+    private File spilledFile;
+    private boolean closed;
+
+    private DocumentContent(byte[] data, int dataLength, File file, boolean temporary, String extension, Runnable releaseHook) {
+        this.data = data;
+        this.dataLength = dataLength;
+        this.file = file;
+        this.temporary = temporary;
+        this.extension = normalizeExtension(extension);
+        this.releaseHook = releaseHook;
+    }
+
+    /**
+     * 内存中的文档内容
+     */
+    public static DocumentContent ofBytes(byte[] data, int length, String extension) {
+        return new DocumentContent(data, length, null, false, extension, null);
+    }
+
+    /**
+     * 文件中的文档内容
+     * @param temporary 是否为临时文件,为true时close()会删除该文件
+     */
+    public static DocumentContent ofFile(File file, String extension, boolean temporary) {
+        return new DocumentContent(null, 0, file, temporary, extension, null);
+    }
+
+    /**
+     * 由其他组件管理的文件(如缓存),close()时不删除文件,只调用releaseHook
+     */
+    public static DocumentContent ofFile(File file, String extension, Runnable releaseHook) {
+        return new DocumentContent(null, 0, file, false, extension, releaseHook);
+    }
+
+    /**
+     * 读取输入流,超过内存阈值时写入临时文件
+     * @param maxSize 最大字节数,超过时抛出DocumentTooLargeException
+     */
+    public static DocumentContent read(InputStream in, String extension, long memoryThreshold, long maxSize) throws IOException {
+        try (SpoolingOutputStream out = new SpoolingOutputStream(memoryThreshold, maxSize, extension)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toContent();
+        }
+    }
+
+    /**
+     * 临时文件目录(printbridge.tempDir,默认java.io.tmpdir)
+     */
+    public static Path getTempDirectory() {
+        return Paths.get(AppConfig.Temp.DIRECTORY);
+    }
+
+    /**
+     * 在临时文件目录中创建PrintBridge临时文件
+     */
+    public static Path createTempFile(String prefix, String suffix) throws IOException {
+        Path directory = getTempDirectory();
+        if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory);
+        }
+        return Files.createTempFile(directory, prefix, suffix);
+    }
+
+    /**
+     * 打开读取流,每次调用返回新的流
+     */
+    public InputStream openStream() throws IOException {
+        if (data != null) {
+            return new ByteArrayInputStream(data, 0, dataLength);
+        }
+        return new FileInputStream(file);
+    }
+
+    public long length() {
+        return data != null ? dataLength : file.length();
+    }
+
+    public boolean isInMemory() {
+        return data != null;
+    }
+
+    /**
+     * 获取内存中的字节,仅在isInMemory()为true时可用,数组长度可能大于length()
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * 获取文件路径,内存中的内容会先写入临时文件(此后随close()一并删除)
+     */
+    public synchronized File toFile() throws IOException {
+        if (file != null) {
+            return file;
+        }
+        if (spilledFile == null) {
+            Path path = createTempFile("printbridge_content_", "." + (extension.isEmpty() ? "tmp" : extension));
+            try (OutputStream out = Files.newOutputStream(path)) {
+                out.write(data, 0, dataLength);
+            }
+            spilledFile = path.toFile();
+        }
+        return spilledFile;
+    }
+
+    /**
+     * 文件扩展名(小写,不含点)
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        deleteQuietly(spilledFile);
+        spilledFile = null;
+        if (temporary) {
+            deleteQuietly(file);
+        }
+        if (releaseHook != null) {
+            releaseHook.run();
+        }
+    }
+
+    private static void deleteQuietly(File target) {
+        if (target == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(target.toPath());
+        } catch (IOException e) {
+            logger.warn("清理临时文件失败: {}", e.getMessage());
+        }
+    }
+
+    private static String normalizeExtension(String extension) {
+        if (extension == null) {
+            return "";
+        }
+        String ext = extension.toLowerCase();
+        return ext.startsWith(".") ? ext.substring(1) : ext;
+    }
+}
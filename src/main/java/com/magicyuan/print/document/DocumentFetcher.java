@@ -0,0 +1,373 @@
+package com.magicyuan.print.document;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 文档下载器
+ * PDF、图片、Office转换共用的下载组件:统一超时、gzip协商、按主机限制并发,
+ * 并完整读完/关闭响应流,使JDK的keep-alive连接池能够复用连接;
+ * 可选的磁盘缓存按URL保存文档,通过ETag/Last-Modified条件请求重新验证
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class DocumentFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentFetcher.class);
+
+    private static final String USER_AGENT = "PrintBridge/2.1.0";
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int maxConnectionsPerHost;
+    private final long memoryThreshold;
+    private final long maxSize;
+
+    private final DiskLruCache cache;
+    private final long cacheTtlMillis;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong freshHitCount = new AtomicLong();
+    private final AtomicLong revalidatedCount = new AtomicLong();
+    private final AtomicLong storedCount = new AtomicLong();
+
+    /**
+     * @param connectTimeout 连接超时(毫秒)
+     * @param readTimeout 读取超时(毫秒)
+     * @param maxConnectionsPerHost 每个主机的最大并发下载数,同时作为keep-alive池中每个主机保留的连接数
+     * @param memoryThreshold 下载内容超过该字节数时写入临时文件
+     * @param maxSize 单个文档的最大字节数,小于等于0表示不限制
+     * @param cache 文档磁盘缓存,为null时不缓存
+     * @param cacheTtlMillis 缓存条目在该时间内视为新鲜,直接使用不访问网络;过期后用ETag/Last-Modified条件请求重新验证
+     */
+    public DocumentFetcher(int connectTimeout, int readTimeout, int maxConnectionsPerHost, long memoryThreshold, long maxSize,
+                           DiskLruCache cache, long cacheTtlMillis) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+        this.memoryThreshold = memoryThreshold;
+        this.maxSize = maxSize;
+        this.cache = cache;
+        this.cacheTtlMillis = cacheTtlMillis;
+
+        // JDK keep-alive池默认每个目标只保留5个空闲连接,需在首次建立连接前设置
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(this.maxConnectionsPerHost));
+        }
+    }
+
+    /**
+     * 下载文档到内存或临时文件(启用缓存时返回缓存文件)
+     * @param extension 文档扩展名
+     * @return 文档内容,使用完后需close()
+     */
+    public DocumentContent fetch(String fileUrl, String extension) throws IOException {
+        URL url = new URL(fileUrl);
+        if (cache == null || !isHttp(url)) {
+            try (InputStream in = connect(url, null).body) {
+                return DocumentContent.read(in, extension, memoryThreshold, maxSize);
+            }
+        }
+        return fetchCached(url, fileUrl, extension);
+    }
+
+    /**
+     * 经由缓存下载:新鲜命中直接返回;过期条目发送条件请求,304时沿用缓存;否则下载,200响应写入缓存
+     */
+    private DocumentContent fetchCached(URL url, String fileUrl, String extension) throws IOException {
+        DiskLruCache.Entry entry = cache.acquire(fileUrl);
+        Properties cached = null;
+
+        if (entry != null) {
+            cached = entry.getMetadata();
+            long validatedAt = Long.parseLong(cached.getProperty("validatedAt", "0"));
+            long ttl = Long.parseLong(cached.getProperty("ttl", "0"));
+            if (System.currentTimeMillis() - validatedAt < ttl) {
+                freshHitCount.incrementAndGet();
+                logger.debug("缓存命中: {}", fileUrl);
+                return cache.toContent(entry, extension);
+            }
+        }
+
+        Response response;
+        try {
+            response = connect(url, cached);
+        } catch (IOException | RuntimeException e) {
+            if (entry != null) {
+                cache.release(entry);
+            }
+            throw e;
+        }
+
+        if (response.status == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+            revalidatedCount.incrementAndGet();
+            logger.debug("缓存验证通过(304): {}", fileUrl);
+            Properties update = new Properties();
+            update.setProperty("validatedAt", String.valueOf(System.currentTimeMillis()));
+            update.setProperty("ttl", String.valueOf(freshnessMillis(response.connection)));
+            cache.updateMetadata(entry, update);
+            return cache.toContent(entry, extension);
+        }
+
+        if (entry != null) {
+            cache.release(entry);
+        }
+
+        try (InputStream in = response.body) {
+            // 只缓存完整的200响应,206等其他2xx的内容不代表整个文档
+            String cacheControl = response.connection.getHeaderField("Cache-Control");
+            if (response.status != HttpURLConnection.HTTP_OK
+                || cacheControl != null && cacheControl.toLowerCase().contains("no-store")) {
+                return DocumentContent.read(in, extension, memoryThreshold, maxSize);
+            }
+
+            Properties metadata = new Properties();
+            metadata.setProperty("validatedAt", String.valueOf(System.currentTimeMillis()));
+            metadata.setProperty("ttl", String.valueOf(freshnessMillis(response.connection)));
+            String etag = response.connection.getHeaderField("ETag");
+            if (etag != null) {
+                metadata.setProperty("etag", etag);
+            }
+            String lastModified = response.connection.getHeaderField("Last-Modified");
+            if (lastModified != null) {
+                metadata.setProperty("lastModified", lastModified);
+            }
+
+            DocumentContent content = cache.put(fileUrl, in, extension, metadata, maxSize);
+            storedCount.incrementAndGet();
+            return content;
+        }
+    }
+
+    /**
+     * 新鲜期:优先使用响应的Cache-Control(no-cache/max-age),否则使用配置的TTL
+     */
+    private long freshnessMillis(URLConnection connection) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase().split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-cache")) {
+                    return 0;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        return Long.parseLong(directive.substring("max-age=".length())) * 1000L;
+                    } catch (NumberFormatException e) {
+                        logger.debug("无法解析max-age: {}", directive);
+                    }
+                }
+            }
+        }
+        return cacheTtlMillis;
+    }
+
+    /**
+     * 建立连接并检查响应状态
+     * @param validators 缓存元数据,不为null时发送条件请求
+     * @return 响应;304时body为null且已归还并发许可
+     */
+    private Response connect(URL url, Properties validators) throws IOException {
+        Semaphore permits = hostPermits.computeIfAbsent(hostKey(url), key -> new Semaphore(maxConnectionsPerHost));
+        acquire(permits, url);
+
+        long start = System.currentTimeMillis();
+        requestCount.incrementAndGet();
+        try {
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            if (validators != null) {
+                if (validators.getProperty("etag") != null) {
+                    connection.setRequestProperty("If-None-Match", validators.getProperty("etag"));
+                }
+                if (validators.getProperty("lastModified") != null) {
+                    connection.setRequestProperty("If-Modified-Since", validators.getProperty("lastModified"));
+                }
+            }
+
+            if (connection instanceof HttpURLConnection) {
+                HttpURLConnection http = (HttpURLConnection) connection;
+                int status = http.getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+                    http.getInputStream().close();
+                    totalMillis.addAndGet(System.currentTimeMillis() - start);
+                    permits.release();
+                    return new Response(status, connection, null);
+                }
+                if (status < 200 || status >= 300) {
+                    drainErrorStream(http);
+                    throw new IOException("下载失败: HTTP " + status + " " + url);
+                }
+            }
+
+            InputStream in = connection.getInputStream();
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                in = new GZIPInputStream(in);
+            }
+            int status = connection instanceof HttpURLConnection
+                ? ((HttpURLConnection) connection).getResponseCode() : HttpURLConnection.HTTP_OK;
+            return new Response(status, connection, new FetchStream(in, permits, start));
+
+        } catch (IOException | RuntimeException e) {
+            failureCount.incrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    private boolean isHttp(URL url) {
+        return "http".equalsIgnoreCase(url.getProtocol()) || "https".equalsIgnoreCase(url.getProtocol());
+    }
+
+    private void acquire(Semaphore permits, URL url) throws IOException {
+        try {
+            if (!permits.tryAcquire(readTimeout, TimeUnit.MILLISECONDS)) {
+                failureCount.incrementAndGet();
+                throw new IOException("等待下载连接超时: " + url.getHost());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待下载连接被中断", e);
+        }
+    }
+
+    /**
+     * 读完错误响应体,使连接可以归还到keep-alive池
+     */
+    private void drainErrorStream(HttpURLConnection http) {
+        try (InputStream error = http.getErrorStream()) {
+            if (error != null) {
+                byte[] buffer = new byte[4096];
+                while (error.read(buffer) != -1) {
+                    // 丢弃
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("读取错误响应失败: {}", e.getMessage());
+        }
+    }
+
+    private String hostKey(URL url) {
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return url.getProtocol() + "://" + url.getHost() + ":" + port;
+    }
+
+    /**
+     * 获取下载统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long requests = requestCount.get();
+        stats.put("requests", requests);
+        stats.put("failures", failureCount.get());
+        stats.put("bytes", bytesRead.get());
+        stats.put("avgMillis", requests > 0 ? totalMillis.get() / requests : 0);
+
+        Map<String, Integer> inFlight = new LinkedHashMap<>();
+        for (Map.Entry<String, Semaphore> entry : hostPermits.entrySet()) {
+            int active = maxConnectionsPerHost - entry.getValue().availablePermits();
+            if (active > 0) {
+                inFlight.put(entry.getKey(), active);
+            }
+        }
+        stats.put("maxConnectionsPerHost", maxConnectionsPerHost);
+        stats.put("inFlight", inFlight);
+
+        if (cache != null) {
+            Map<String, Object> cacheStats = cache.getStatistics();
+            cacheStats.put("freshHits", freshHitCount.get());
+            cacheStats.put("revalidated", revalidatedCount.get());
+            cacheStats.put("stored", storedCount.get());
+            stats.put("cache", cacheStats);
+        }
+        return stats;
+    }
+
+    /**
+     * 响应状态、连接与响应体
+     */
+    private static final class Response {
+
+        private final int status;
+        private final URLConnection connection;
+        private final InputStream body;
+
+        private Response(int status, URLConnection connection, InputStream body) {
+            this.status = status;
+            this.connection = connection;
+            this.body = body;
+        }
+    }
+
+    /**
+     * 下载流:统计字节数,关闭时归还主机并发许可(连接由JDK放回keep-alive池)
+     */
+    private class FetchStream extends FilterInputStream {
+
+        private final Semaphore permits;
+        private final long start;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private FetchStream(InputStream in, Semaphore permits, long start) {
+            super(in);
+            this.permits = permits;
+            this.start = start;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                bytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                bytesRead.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                super.close();
+            } finally {
+                totalMillis.addAndGet(System.currentTimeMillis() - start);
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.magicyuan.print.document;
+
+import java.io.IOException;
+
+/**
+ * 文档超过允许的最大字节数
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class DocumentTooLargeException extends IOException {
+
+    private final long maxSize;
+
+    public DocumentTooLargeException(long maxSize) {
+        super("文档超过最大限制: " + maxSize + " 字节");
+        this.maxSize = maxSize;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,199 @@
+package com.magicyuan.print.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PDF加载器
+ * 按配置的内存策略加载PDF:混合模式下每个文档最多占用固定的堆内缓冲,超出部分写入临时文件;
+ * 所有文档共享一个全局堆预算,预算用尽后新加载的文档只使用临时文件
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PdfLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfLoader.class);
+
+    /** 可分配的堆内缓冲低于该值时不再使用混合模式 */
+    private static final long MIN_HEAP_GRANT = 1024 * 1024;
+
+    private final Mode mode;
+    private final long heapPerDocument;
+    private final long heapBudget;
+    private final File tempDirectory;
+
+    private final AtomicLong heapReserved = new AtomicLong();
+    private final AtomicLong memoryLoads = new AtomicLong();
+    private final AtomicLong mixedLoads = new AtomicLong();
+    private final AtomicLong scratchLoads = new AtomicLong();
+
+    /**
+     * @param mode 内存策略
+     * @param heapPerDocument 混合模式下单个文档的堆内缓冲上限
+     * @param heapBudget 所有文档堆内缓冲的总预算
+     * @param tempDirectory 临时文件目录
+     */
+    public PdfLoader(Mode mode, long heapPerDocument, long heapBudget, File tempDirectory) {
+        this.mode = mode;
+        this.heapPerDocument = heapPerDocument;
+        this.heapBudget = heapBudget;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * 加载PDF内容
+     * @return 已加载的文档,关闭时释放占用的堆预算
+     */
+    public LoadedPdf load(DocumentContent content) throws IOException {
+        long grant = mode == Mode.MIXED ? reserve() : 0;
+        MemoryUsageSetting setting = createSetting(grant);
+
+        try {
+            PDDocument document = content.isInMemory()
+                ? loadBytes(content, setting)
+                : PDDocument.load(content.toFile(), setting);
+            return new LoadedPdf(document, grant);
+        } catch (IOException | RuntimeException e) {
+            release(grant);
+            throw e;
+        }
+    }
+
+    private PDDocument loadBytes(DocumentContent content, MemoryUsageSetting setting) throws IOException {
+        byte[] data = content.getData();
+        // 数组恰好是文档内容时直接包装,不再复制一份到缓冲中
+        if (data.length == content.length()) {
+            return PDDocument.load(data, "", null, null, setting);
+        }
+        return PDDocument.load(new ByteArrayInputStream(data, 0, (int) content.length()), setting);
+    }
+
+    private MemoryUsageSetting createSetting(long grant) {
+        switch (mode) {
+            case MEMORY:
+                memoryLoads.incrementAndGet();
+                return MemoryUsageSetting.setupMainMemoryOnly();
+            case MIXED:
+                if (grant > 0) {
+                    mixedLoads.incrementAndGet();
+                    return MemoryUsageSetting.setupMixed(grant).setTempDir(tempDirectory);
+                }
+                logger.debug("PDF堆预算已用尽,本文档仅使用临时文件");
+                scratchLoads.incrementAndGet();
+                return MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDirectory);
+            default:
+                scratchLoads.incrementAndGet();
+                return MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDirectory);
+        }
+    }
+
+    /**
+     * 从全局预算中预留堆内缓冲
+     * @return 预留的字节数,预算不足时返回0
+     */
+    private long reserve() {
+        while (true) {
+            long reserved = heapReserved.get();
+            long grant = Math.min(heapPerDocument, heapBudget - reserved);
+            if (grant < MIN_HEAP_GRANT) {
+                return 0;
+            }
+            if (heapReserved.compareAndSet(reserved, reserved + grant)) {
+                return grant;
+            }
+        }
+    }
+
+    private void release(long grant) {
+        if (grant > 0) {
+            heapReserved.addAndGet(-grant);
+        }
+    }
+
+    /**
+     * 获取加载统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode.name());
+        stats.put("heapPerDocument", heapPerDocument);
+        stats.put("heapBudget", heapBudget);
+        stats.put("heapReserved", heapReserved.get());
+        stats.put("memoryLoads", memoryLoads.get());
+        stats.put("mixedLoads", mixedLoads.get());
+        stats.put("scratchLoads", scratchLoads.get());
+        return stats;
+    }
+
+    /**
+     * 已加载的PDF文档
+     */
+    public final class LoadedPdf implements Closeable {
+
+        private final PDDocument document;
+        private final long heapGrant;
+        private boolean closed;
+
+        private LoadedPdf(PDDocument document, long heapGrant) {
+            this.document = document;
+            this.heapGrant = heapGrant;
+        }
+
+        public PDDocument getDocument() {
+            return document;
+        }
+
+        /**
+         * 获取为该文档预留的堆内缓冲字节数
+         */
+        public long getHeapGrant() {
+            return heapGrant;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                document.close();
+            } finally {
+                release(heapGrant);
+            }
+        }
+    }
+
+    /**
+     * 内存策略
+     */
+    public enum Mode {
+
+        /** 全部在堆内 */
+        MEMORY,
+
+        /** 堆内缓冲加临时文件 */
+        MIXED,
+
+        /** 全部使用临时文件 */
+        FILE;
+
+        public static Mode parse(String value) {
+            if ("memory".equalsIgnoreCase(value)) {
+                return MEMORY;
+            }
+            return "file".equalsIgnoreCase(value) ? FILE : MIXED;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.magicyuan.print.document;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * 溢出到磁盘的输出流
+ * 写入量不超过内存阈值时保存在内存中,超过后转写到临时文件,并限制最大字节数
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class SpoolingOutputStream extends OutputStream {
+
+    private final long memoryThreshold;
+    private final long maxSize;
+    private final String extension;
+
+    private ExposedByteArrayOutputStream memory = new ExposedByteArrayOutputStream();
+    private File file;
+    private OutputStream fileOut;
+    private long size;
+    private boolean handedOff;
+
+    /**
+     * @param memoryThreshold 内存缓冲阈值(字节)
+     * @param maxSize 最大字节数,小于等于0表示不限制
+     * @param extension 生成内容的扩展名
+     */
+    public SpoolingOutputStream(long memoryThreshold, long maxSize, String extension) {
+        this.memoryThreshold = memoryThreshold;
+        this.maxSize = maxSize;
+        this.extension = extension == null ? "" : extension;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (maxSize > 0 && size + len > maxSize) {
+            throw new DocumentTooLargeException(maxSize);
+        }
+        if (fileOut == null && size + len > memoryThreshold) {
+            spill();
+        }
+        if (fileOut != null) {
+            fileOut.write(b, off, len);
+        } else {
+            memory.write(b, off, len);
+        }
+        size += len;
+    }
+
+    private void spill() throws IOException {
+        String suffix = extension.isEmpty() ? ".tmp" : (extension.startsWith(".") ? extension : "." + extension);
+        file = DocumentContent.createTempFile("printbridge_spool_", suffix).toFile();
+        fileOut = new BufferedOutputStream(new FileOutputStream(file));
+        memory.writeTo(fileOut);
+        memory = null;
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 结束写入并转换为文档内容,之后由DocumentContent负责释放临时文件
+     */
+    public DocumentContent toContent() throws IOException {
+        flush();
+        handedOff = true;
+        if (fileOut != null) {
+            fileOut.close();
+            return DocumentContent.ofFile(file, extension, true);
+        }
+        return DocumentContent.ofBytes(memory.buffer(), memory.size(), extension);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (fileOut != null) {
+            fileOut.flush();
+        }
+    }
+
+    /**
+     * 关闭流;若未调用toContent()则删除已写出的临时文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (fileOut != null) {
+            fileOut.close();
+        }
+        if (!handedOff && file != null) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * 可直接访问内部数组的ByteArrayOutputStream,避免toByteArray()的拷贝
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
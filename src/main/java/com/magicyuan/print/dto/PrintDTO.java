@@ -1,5 +1,7 @@
 package com.magicyuan.print.dto;
 
+import com.alibaba.fastjson.annotation.JSONField;
+
 public class PrintDTO {
 
     private String fileUrl;
@@ -8,6 +10,22 @@ public class PrintDTO {
 
     private boolean landscape = false;
 
+    /** 图片转换的目标打印分辨率,为空时使用默认值,0表示不降采样 */
+    private Integer dpi;
+
+    /** 目标打印机名称、别名或池名,为空时使用默认打印机 */
+    private String printer;
+
+    /** 打印份数,为空时打印1份 */
+    private Integer copies;
+
+    /** 页码范围,如 1-3,5,页码从1开始;为空时打印全部页面 */
+    private String pageRanges;
+
+    /** 打印成功后在重新打印缓存中的作业ID,打印历史据此取出PDF;不参与JSON读写 */
+    @JSONField(serialize = false, deserialize = false)
+    private volatile String jobId;
+
     public String getFileUrl() {
         return fileUrl;
     }
@@ -32,6 +50,46 @@ public class PrintDTO {
         this.landscape = landscape;
     }
 
+    public Integer getDpi() {
+        return dpi;
+    }
+
+    public void setDpi(Integer dpi) {
+        this.dpi = dpi;
+    }
+
+    public String getPrinter() {
+        return printer;
+    }
+
+    public void setPrinter(String printer) {
+        this.printer = printer;
+    }
+
+    public Integer getCopies() {
+        return copies;
+    }
+
+    public void setCopies(Integer copies) {
+        this.copies = copies;
+    }
+
+    public String getPageRanges() {
+        return pageRanges;
+    }
+
+    public void setPageRanges(String pageRanges) {
+        this.pageRanges = pageRanges;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
     @Override
     public String toString() {
         return fileName;
@@ -0,0 +1,241 @@
+package com.magicyuan.print.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.dto.PrintDTO;
+
+/**
+ * 打印作业
+ * 记录一个已提交PrintDTO的作业ID和执行状态,支持等待状态变化
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintJob {
+
+    private final String id;
+    private final PrintDTO printDTO;
+    private final DocumentContent content;
+    private final String reprintOf;
+    private final long submittedAt;
+
+    private volatile State state = State.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String error;
+    private volatile long peakHeapBytes = -1;
+    private volatile int shards;
+    private final AtomicInteger shardsDone = new AtomicInteger();
+
+    /** 等待状态变化的回调,受this锁保护 */
+    private final List<Waiter> waiters = new ArrayList<>();
+
+    public PrintJob(PrintDTO printDTO) {
+        this(printDTO, null);
+    }
+
+    /**
+     * @param content 已上传的文档内容,为null时按fileUrl下载
+     */
+    public PrintJob(PrintDTO printDTO, DocumentContent content) {
+        this(printDTO, content, null);
+    }
+
+    /**
+     * @param content 已上传的文档内容,为null时按fileUrl下载
+     * @param reprintOf 被重新打印的作业ID,不是重新打印时为null
+     */
+    public PrintJob(PrintDTO printDTO, DocumentContent content, String reprintOf) {
+        this.id = UUID.randomUUID().toString().replace("-", "");
+        this.printDTO = printDTO;
+        this.content = content;
+        this.reprintOf = reprintOf;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public PrintDTO getPrintDTO() {
+        return printDTO;
+    }
+
+    /**
+     * 获取已上传的文档内容
+     * @return 文档内容,按URL下载的作业返回null
+     */
+    public DocumentContent getContent() {
+        return content;
+    }
+
+    /**
+     * 被重新打印的作业ID
+     * @return 作业ID,不是重新打印时返回null
+     */
+    public String getReprintOf() {
+        return reprintOf;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isFinished() {
+        return state.isTerminal();
+    }
+
+    /**
+     * 标记为正在执行
+     */
+    public void markRunning() {
+        startedAt = System.currentTimeMillis();
+        transition(State.RUNNING);
+    }
+
+    /**
+     * 记录执行期间观测到的堆增长峰值
+     */
+    public void recordPeakHeap(long bytes) {
+        this.peakHeapBytes = bytes;
+    }
+
+    /**
+     * 记录作业被拆分的分片数
+     */
+    public void startShards(int total) {
+        this.shards = total;
+    }
+
+    /**
+     * 记录一个分片打印结束
+     */
+    public void shardDone() {
+        shardsDone.incrementAndGet();
+    }
+
+    /**
+     * 标记为执行成功
+     */
+    public void markDone() {
+        finishedAt = System.currentTimeMillis();
+        transition(State.DONE);
+    }
+
+    /**
+     * 标记为执行失败
+     */
+    public void markFailed(String error) {
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+        transition(State.FAILED);
+    }
+
+    /**
+     * 等待作业到达指定状态(或任一终止状态)
+     * @return 到达时完成的Future,调用方超时后可cancel
+     */
+    public synchronized CompletableFuture<PrintJob> awaitState(State target) {
+        if (state.reached(target)) {
+            return CompletableFuture.completedFuture(this);
+        }
+        waiters.removeIf(waiter -> waiter.future.isDone());
+
+        CompletableFuture<PrintJob> future = new CompletableFuture<>();
+        waiters.add(new Waiter(target, future));
+        return future;
+    }
+
+    private void transition(State newState) {
+        List<CompletableFuture<PrintJob>> ready = new ArrayList<>();
+        synchronized (this) {
+            state = newState;
+            Iterator<Waiter> iterator = waiters.iterator();
+            while (iterator.hasNext()) {
+                Waiter waiter = iterator.next();
+                if (newState.reached(waiter.target)) {
+                    ready.add(waiter.future);
+                    iterator.remove();
+                }
+            }
+        }
+        // 在锁外回调,避免回调中写响应时持有锁
+        for (CompletableFuture<PrintJob> future : ready) {
+            future.complete(this);
+        }
+    }
+
+    /**
+     * 转换为接口返回的数据
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("state", state.name());
+        map.put("fileName", printDTO.getFileName());
+        map.put("fileUrl", printDTO.getFileUrl());
+        map.put("submittedAt", submittedAt);
+        if (reprintOf != null) {
+            map.put("reprintOf", reprintOf);
+        }
+        if (startedAt > 0) {
+            map.put("startedAt", startedAt);
+        }
+        if (finishedAt > 0) {
+            map.put("finishedAt", finishedAt);
+        }
+        if (peakHeapBytes >= 0) {
+            map.put("peakHeapBytes", peakHeapBytes);
+        }
+        if (shards > 0) {
+            map.put("shards", shards);
+            map.put("shardsDone", shardsDone.get());
+        }
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+
+    private static final class Waiter {
+
+        private final State target;
+        private final CompletableFuture<PrintJob> future;
+
+        private Waiter(State target, CompletableFuture<PrintJob> future) {
+            this.target = target;
+            this.future = future;
+        }
+    }
+
+    /**
+     * 作业状态,按生命周期顺序排列
+     */
+    public enum State {
+
+        QUEUED, RUNNING, DONE, FAILED;
+
+        public boolean isTerminal() {
+            return this == DONE || this == FAILED;
+        }
+
+        /**
+         * 当前状态是否已满足对目标状态的等待(终止状态满足任何等待)
+         */
+        public boolean reached(State target) {
+            return isTerminal() || ordinal() >= target.ordinal();
+        }
+    }
+}
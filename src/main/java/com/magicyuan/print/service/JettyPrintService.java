@@ -1,26 +1,56 @@
 package com.magicyuan.print.service;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.MultipartConfigElement;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
 
+import com.magicyuan.print.config.AppConfig;
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.document.DocumentTooLargeException;
 import com.magicyuan.print.dto.PrintDTO;
+import com.magicyuan.print.model.PrintJob;
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.UrlEncoded;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
 
 /**
  * 基于Jetty的HTTP打印服务实现
@@ -36,6 +66,36 @@ public class JettyPrintService {
 
     private static final int MAX_THREADS = 100;
 
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private static final int SC_PAYLOAD_TOO_LARGE = 413;
+
+    private static final int SC_MULTI_STATUS = 207;
+
+    /** GET /printers?refresh=true 等待刷新完成的最长时间 */
+    private static final long PRINTER_REFRESH_TIMEOUT_MS = 10000L;
+
+    /** 上传时Content-Type到扩展名的映射 */
+    private static final Map<String, String> UPLOAD_CONTENT_TYPES = new HashMap<>();
+
+    static {
+        UPLOAD_CONTENT_TYPES.put("application/pdf", "pdf");
+        UPLOAD_CONTENT_TYPES.put("image/jpeg", "jpg");
+        UPLOAD_CONTENT_TYPES.put("image/png", "png");
+        UPLOAD_CONTENT_TYPES.put("image/gif", "gif");
+        UPLOAD_CONTENT_TYPES.put("image/bmp", "bmp");
+        UPLOAD_CONTENT_TYPES.put("image/tiff", "tif");
+        UPLOAD_CONTENT_TYPES.put("application/msword", "doc");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.openxmlformats-officedocument.wordprocessingml.document", "docx");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.ms-excel", "xls");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.ms-powerpoint", "ppt");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.openxmlformats-officedocument.presentationml.presentation", "pptx");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.oasis.opendocument.text", "odt");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.oasis.opendocument.spreadsheet", "ods");
+        UPLOAD_CONTENT_TYPES.put("application/vnd.oasis.opendocument.presentation", "odp");
+    }
+
     private Server server;
 
     private boolean isRunning = false;
@@ -81,17 +141,38 @@ public class JettyPrintService {
 
             // 打印服务上下文
             ContextHandler printContext = new ContextHandler("/print");
+            printContext.setAllowNullPathInfo(true);
             printContext.setHandler(new PrintHandler());
 
             // 健康检查上下文
             ContextHandler healthContext = new ContextHandler("/health");
+            healthContext.setAllowNullPathInfo(true);
             healthContext.setHandler(new HealthHandler());
 
+            // 上传打印上下文(最长路径优先匹配,不会被/print拦截)
+            ContextHandler uploadContext = new ContextHandler("/print/upload");
+            uploadContext.setAllowNullPathInfo(true);
+            uploadContext.setHandler(new UploadHandler());
+
+            // 作业状态上下文
+            ContextHandler jobsContext = new ContextHandler("/jobs");
+            jobsContext.setHandler(new JobsHandler());
+
+            // 打印机列表上下文
+            ContextHandler printersContext = new ContextHandler("/printers");
+            printersContext.setAllowNullPathInfo(true);
+            printersContext.setHandler(new PrintersHandler());
+
+            // 运行指标上下文
+            ContextHandler metricsContext = new ContextHandler("/metrics");
+            metricsContext.setAllowNullPathInfo(true);
+            metricsContext.setHandler(new MetricsHandler());
+
             // 根路径处理（OPTIONS预检请求）
             ContextHandler rootContext = new ContextHandler("/");
             rootContext.setHandler(new CorsHandler());
 
-            contexts.setHandlers(new org.eclipse.jetty.server.Handler[] { printContext, healthContext, rootContext });
+            contexts.setHandlers(new org.eclipse.jetty.server.Handler[] { printContext, uploadContext, jobsContext, printersContext, healthContext, metricsContext, rootContext });
 
             server.setHandler(contexts);
 
@@ -102,7 +183,12 @@ public class JettyPrintService {
             logger.info("PrintBridge服务已启动，监听端口: " + port);
             logger.info("服务端点:");
             logger.info("  - POST /print  : 打印服务");
+            logger.info("  - POST /print/upload: 上传文档打印");
+            logger.info("  - GET  /jobs/{id}: 作业状态(支持waitFor长轮询)");
+            logger.info("  - POST /jobs/{id}/reprint: 使用缓存的PDF重新打印");
+            logger.info("  - GET  /printers: 打印机列表和能力");
             logger.info("  - GET  /health : 健康检查");
+            logger.info("  - GET  /metrics: 运行指标");
 
             return true;
 
@@ -153,33 +239,122 @@ public class JettyPrintService {
     }
 
     /**
-     * 发送成功响应
+     * 发送错误响应
      */
-    private void sendSuccessResponse(HttpServletResponse response, String message) throws IOException {
-        response.setStatus(HttpServletResponse.SC_OK);
+    private void sendErrorResponse(HttpServletResponse response, int statusCode, String errorMessage) throws IOException {
+        response.setStatus(statusCode);
         response.setContentType("application/json; charset=UTF-8");
 
-        String jsonResponse = String.format("{\"success\":true,\"message\":\"%s\",\"timestamp\":%d}", message, System.currentTimeMillis());
+        String errorResponse = String.format("{\"success\":false,\"error\":\"%s\",\"timestamp\":%d}", errorMessage, System.currentTimeMillis());
 
         PrintWriter writer = response.getWriter();
-        writer.write(jsonResponse);
+        writer.write(errorResponse);
         writer.flush();
     }
 
     /**
-     * 发送错误响应
+     * 发送提交成功响应,附带每个文件对应的作业ID
      */
-    private void sendErrorResponse(HttpServletResponse response, int statusCode, String errorMessage) throws IOException {
+    private void sendSubmittedResponse(HttpServletResponse response, List<PrintJob> jobs) throws IOException {
+        JSONObject result = new JSONObject(true);
+        result.put("success", true);
+        result.put("message", "Print job submitted successfully");
+        result.put("jobs", toJobIds(jobs));
+        result.put("timestamp", System.currentTimeMillis());
+
+        sendJsonResponse(response, HttpServletResponse.SC_OK, result);
+    }
+
+    /**
+     * 请求中途出错时的响应:已有作业被接受时返回207,附带已接受的作业ID,这些作业已在打印,
+     * 客户端只应重新提交其余部分;没有作业被接受时返回400
+     */
+    private void sendInvalidResponse(HttpServletResponse response, String error, List<PrintJob> accepted) throws IOException {
+        if (accepted.isEmpty()) {
+            sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, error);
+            return;
+        }
+        logger.warn("打印请求部分无效: 已接受{}个, {}", accepted.size(), error);
+
+        JSONObject result = new JSONObject(true);
+        result.put("success", false);
+        result.put("error", error);
+        result.put("accepted", accepted.size());
+        result.put("jobs", toJobIds(accepted));
+        result.put("timestamp", System.currentTimeMillis());
+        sendJsonResponse(response, SC_MULTI_STATUS, result);
+    }
+
+    /**
+     * 读取整个请求体
+     */
+    private String readRequestBody(HttpServletRequest request) throws IOException {
+        try (BufferedReader reader = request.getReader()) {
+            return readBody(reader);
+        }
+    }
+
+    /**
+     * 逐行读取并拼接请求体(原有模式)
+     */
+    static String readBody(BufferedReader reader) throws IOException {
+        StringBuilder body = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            body.append(line);
+        }
+        return body.toString();
+    }
+
+    /**
+     * 从JSON数组中逐个读取PrintDTO并交给consumer处理,解析到格式错误时之前的元素已交给consumer
+     */
+    static void readPrintDTOs(Reader input, Consumer<PrintDTO> consumer) {
+        try (JSONReader reader = new JSONReader(input)) {
+            reader.startArray();
+            while (reader.hasNext()) {
+                consumer.accept(reader.readObject(PrintDTO.class));
+            }
+            reader.endArray();
+        }
+    }
+
+    /**
+     * 发送队列已满响应(429),附带根据消费速率估算的Retry-After
+     */
+    private void sendRejectedResponse(HttpServletResponse response, List<PrintJob> accepted) throws IOException {
+        int retryAfter = printService.estimateRetryAfterSeconds();
+        logger.warn("打印队列已满,拒绝请求: 已接受{}个, Retry-After {}s", accepted.size(), retryAfter);
+
+        JSONObject result = new JSONObject(true);
+        result.put("success", false);
+        result.put("error", "Print queue is full");
+        result.put("accepted", accepted.size());
+        result.put("jobs", toJobIds(accepted));
+        result.put("retryAfter", retryAfter);
+        result.put("timestamp", System.currentTimeMillis());
+
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        sendJsonResponse(response, SC_TOO_MANY_REQUESTS, result);
+    }
+
+    private void sendJsonResponse(HttpServletResponse response, int statusCode, JSONObject result) throws IOException {
         response.setStatus(statusCode);
         response.setContentType("application/json; charset=UTF-8");
 
-        String errorResponse = String.format("{\"success\":false,\"error\":\"%s\",\"timestamp\":%d}", errorMessage, System.currentTimeMillis());
-
         PrintWriter writer = response.getWriter();
-        writer.write(errorResponse);
+        writer.write(result.toJSONString());
         writer.flush();
     }
 
+    private List<String> toJobIds(List<PrintJob> jobs) {
+        List<String> ids = new ArrayList<>(jobs.size());
+        for (PrintJob job : jobs) {
+            ids.add(job.getId());
+        }
+        return ids;
+    }
+
     /**
      * 打印请求处理器
      */
@@ -219,6 +394,47 @@ public class JettyPrintService {
         }
 
         private void handlePrintRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            if (AppConfig.Http.STREAMING_PARSE) {
+                handleStreamingPrintRequest(request, response);
+            } else {
+                handleBufferedPrintRequest(request, response);
+            }
+        }
+
+        /**
+         * 流式解析请求体,每解析出一个PrintDTO立即提交打印,不在内存中拼接整个请求体
+         */
+        private void handleStreamingPrintRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            PrintSubmitter submitter = new PrintSubmitter(isMerge(request));
+
+            try {
+                readPrintDTOs(request, submitter);
+                submitter.finish();
+            } catch (RejectedExecutionException e) {
+                sendRejectedResponse(response, submitter.jobs);
+                return;
+            } catch (IllegalArgumentException e) {
+                sendInvalidResponse(response, "Invalid print data: " + e.getMessage(), submitter.jobs);
+                return;
+            } catch (Exception e) {
+                logger.warn("解析打印数据失败(已提交{}个): {}", submitter.jobs.size(), e.getMessage(), e);
+                sendInvalidResponse(response, "Invalid JSON format: " + e.getMessage(), submitter.jobs);
+                return;
+            }
+
+            if (submitter.jobs.isEmpty()) {
+                sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid print data");
+                return;
+            }
+
+            logger.info("收到打印请求，文件数量: {}", submitter.jobs.size());
+            sendSubmittedResponse(response, submitter.jobs);
+        }
+
+        /**
+         * 整体读取请求体后解析(原有模式)
+         */
+        private void handleBufferedPrintRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
             // 读取请求体
             String requestBody = readRequestBody(request);
@@ -238,22 +454,23 @@ public class JettyPrintService {
                 }
 
                 logger.info("收到打印请求，文件数量: {}", printList.size());
-                for (PrintDTO dto : printList) {
-                    logger.info("  - 文件: {}, URL: {}", dto.getFileName(), dto.getFileUrl());
-                }
 
-                // 异步执行打印任务
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        printService.printWithoutDialog(printList);
-                        logger.info("打印任务执行完成");
-                    } catch (Exception e) {
-                        logger.error("执行打印任务时发生错误: {}", e.getMessage(), e);
+                PrintSubmitter submitter = new PrintSubmitter(isMerge(request));
+                try {
+                    for (PrintDTO dto : printList) {
+                        submitter.accept(dto);
                     }
-                });
+                    submitter.finish();
+                } catch (RejectedExecutionException e) {
+                    sendRejectedResponse(response, submitter.jobs);
+                    return;
+                } catch (IllegalArgumentException e) {
+                    sendInvalidResponse(response, "Invalid print data: " + e.getMessage(), submitter.jobs);
+                    return;
+                }
 
                 // 返回成功响应
-                sendSuccessResponse(response, "Print job submitted successfully");
+                sendSubmittedResponse(response, submitter.jobs);
 
             } catch (Exception e) {
                 logger.warn("解析打印数据失败: {}", e.getMessage(), e);
@@ -261,15 +478,67 @@ public class JettyPrintService {
             }
         }
 
-        private String readRequestBody(HttpServletRequest request) throws IOException {
-            StringBuilder body = new StringBuilder();
-            try (BufferedReader reader = request.getReader()) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    body.append(line);
-                }
+        /**
+         * 查询参数merge=true时整个请求合并为一个打印作业
+         * 只解析查询串,getParameter在表单类型请求上会提前读取请求体
+         */
+        private boolean isMerge(HttpServletRequest request) {
+            String query = request.getQueryString();
+            if (query == null) {
+                return false;
+            }
+            MultiMap<String> params = new MultiMap<>();
+            UrlEncoded.decodeTo(query, params, StandardCharsets.UTF_8);
+            return Boolean.parseBoolean(params.getValue("merge", 0));
+        }
+
+        /**
+         * 从请求输入流中逐个读取PrintDTO并交给consumer处理
+         */
+        private void readPrintDTOs(HttpServletRequest request, Consumer<PrintDTO> consumer) throws IOException {
+            String encoding = request.getCharacterEncoding() != null ? request.getCharacterEncoding() : "UTF-8";
+            JettyPrintService.readPrintDTOs(new InputStreamReader(request.getInputStream(), encoding), consumer);
+        }
+    }
+
+    /**
+     * 打印任务提交器
+     * 将解析出的PrintDTO提交到准入队列,队列已满时抛出RejectedExecutionException;
+     * 合并模式下先收集全部PrintDTO,finish()时作为一个批次提交
+     */
+    private class PrintSubmitter implements Consumer<PrintDTO> {
+
+        private final boolean merge;
+        private final List<PrintDTO> pending = new ArrayList<>();
+        private final List<PrintJob> jobs = new ArrayList<>();
+
+        private PrintSubmitter(boolean merge) {
+            this.merge = merge;
+        }
+
+        @Override
+        public void accept(PrintDTO dto) {
+            if (dto == null) {
+                return;
+            }
+            if (merge) {
+                pending.add(dto);
+                return;
+            }
+            PrintJob job = printService.submit(dto);
+            jobs.add(job);
+            logger.info("  - 文件: {}, URL: {}, 作业: {}", dto.getFileName(), dto.getFileUrl(), job.getId());
+        }
+
+        /**
+         * 提交合并批次
+         */
+        private void finish() {
+            if (!merge || pending.isEmpty()) {
+                return;
             }
-            return body.toString();
+            jobs.addAll(printService.submitBatch(pending));
+            logger.info("  - 合并批次: {} 个文件", pending.size());
         }
     }
 
@@ -298,6 +567,407 @@ public class JettyPrintService {
         }
     }
 
+    /**
+     * 文档上传打印处理器
+     * POST /print/upload 接收multipart/form-data或原始文档内容(application/pdf、图片、Office),
+     * 直接送入打印流程,无需打印服务再按URL下载
+     */
+    private class UploadHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+
+            setCorsHeaders(response);
+            baseRequest.setHandled(true);
+
+            String method = request.getMethod();
+            if ("OPTIONS".equals(method)) {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType("text/plain; charset=UTF-8");
+                response.getWriter().write("OK");
+                return;
+            }
+            if (!"POST".equals(method)) {
+                sendErrorResponse(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Method Not Allowed: " + method);
+                return;
+            }
+
+            long contentLength = request.getContentLengthLong();
+            if (contentLength > AppConfig.Upload.MAX_SIZE) {
+                sendErrorResponse(response, SC_PAYLOAD_TOO_LARGE, "Upload exceeds max size: " + AppConfig.Upload.MAX_SIZE);
+                return;
+            }
+
+            List<PrintJob> jobs = new ArrayList<>();
+            try {
+                String contentType = request.getContentType();
+                if (contentType != null && contentType.toLowerCase().startsWith("multipart/form-data")) {
+                    handleMultipart(baseRequest, request, response, jobs);
+                } else {
+                    handleRawBody(request, response, jobs);
+                }
+            } catch (RejectedExecutionException e) {
+                sendRejectedResponse(response, jobs);
+            } catch (DocumentTooLargeException e) {
+                sendErrorResponse(response, SC_PAYLOAD_TOO_LARGE, "Upload exceeds max size: " + e.getMaxSize());
+            } catch (Exception e) {
+                logger.error("处理上传打印请求时发生错误: {}", e.getMessage(), e);
+                // 之前的part已提交为作业时返回207和这些作业ID
+                sendInvalidResponse(response, "Invalid upload: " + e.getMessage(), jobs);
+            }
+        }
+
+        /**
+         * 原始请求体即文档内容,文件名、横向和dpi参数通过查询参数传入
+         */
+        private void handleRawBody(HttpServletRequest request, HttpServletResponse response, List<PrintJob> jobs) throws IOException {
+            String fileName = request.getParameter("fileName");
+            String extension = resolveExtension(fileName, request.getContentType());
+            if (!printService.isSupportedFormat(extension)) {
+                sendErrorResponse(response, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported document type: " + request.getContentType());
+                return;
+            }
+
+            DocumentContent content = DocumentContent.read(request.getInputStream(), extension,
+                AppConfig.Upload.MEMORY_THRESHOLD, AppConfig.Upload.MAX_SIZE);
+            if (content.length() == 0) {
+                content.close();
+                sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Request body is empty");
+                return;
+            }
+
+            jobs.add(submitUpload(fileName, request, content));
+            sendSubmittedResponse(response, jobs);
+        }
+
+        /**
+         * multipart/form-data,每个文件part生成一个作业;超过内存阈值的part由Jetty写入临时文件后直接移交
+         */
+        private void handleMultipart(Request baseRequest, HttpServletRequest request, HttpServletResponse response, List<PrintJob> jobs) throws IOException, ServletException {
+            String location = DocumentContent.getTempDirectory().toString();
+            baseRequest.setAttribute(Request.MULTIPART_CONFIG_ELEMENT, new MultipartConfigElement(location,
+                AppConfig.Upload.MAX_SIZE, AppConfig.Upload.MAX_SIZE, AppConfig.Upload.MEMORY_THRESHOLD));
+
+            Collection<Part> parts;
+            try {
+                parts = request.getParts();
+            } catch (IllegalStateException e) {
+                // Jetty在超过maxFileSize/maxRequestSize时抛出IllegalStateException
+                throw new DocumentTooLargeException(AppConfig.Upload.MAX_SIZE);
+            }
+
+            // 先检查所有文件part的格式,任何一个不支持时整个上传都不提交
+            for (Part part : parts) {
+                if (part.getSubmittedFileName() != null
+                    && !printService.isSupportedFormat(resolveExtension(part.getSubmittedFileName(), part.getContentType()))) {
+                    sendErrorResponse(response, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+                        "Unsupported document type: " + part.getSubmittedFileName());
+                    return;
+                }
+            }
+
+            for (Part part : parts) {
+                if (part.getSubmittedFileName() == null) {
+                    continue;
+                }
+
+                String fileName = part.getSubmittedFileName();
+                String extension = resolveExtension(fileName, part.getContentType());
+                DocumentContent content;
+                if (part.getSize() > AppConfig.Upload.MEMORY_THRESHOLD) {
+                    // 写入(移动)Jetty已落盘的临时文件,避免再复制一次
+                    String spoolName = "printbridge_upload_" + UUID.randomUUID() + "." + extension;
+                    part.write(spoolName);
+                    content = DocumentContent.ofFile(new File(location, spoolName), extension, true);
+                } else {
+                    try (InputStream in = part.getInputStream()) {
+                        content = DocumentContent.read(in, extension, AppConfig.Upload.MEMORY_THRESHOLD, AppConfig.Upload.MAX_SIZE);
+                    }
+                }
+
+                jobs.add(submitUpload(fileName, request, content));
+            }
+
+            if (jobs.isEmpty()) {
+                sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "No file part in upload");
+                return;
+            }
+            sendSubmittedResponse(response, jobs);
+        }
+
+        /**
+         * 提交上传作业,打印选项取自查询参数或表单字段(landscape、dpi、printer、copies、pageRanges)
+         */
+        private PrintJob submitUpload(String fileName, HttpServletRequest request, DocumentContent content) {
+            PrintDTO dto = new PrintDTO();
+            dto.setFileName(fileName != null ? fileName : "upload." + content.getExtension());
+            dto.setLandscape(Boolean.parseBoolean(request.getParameter("landscape")));
+            dto.setPrinter(request.getParameter("printer"));
+            dto.setPageRanges(request.getParameter("pageRanges"));
+            dto.setDpi(parseInteger(request, "dpi", content));
+            dto.setCopies(parseInteger(request, "copies", content));
+
+            PrintJob job = printService.submit(dto, content);
+            logger.info("收到上传打印: {}, {} 字节, 作业: {}", dto.getFileName(), content.length(), job.getId());
+            return job;
+        }
+
+        /**
+         * 读取整数参数,格式错误时释放已上传的内容
+         * @return 参数值,未指定时返回null
+         */
+        private Integer parseInteger(HttpServletRequest request, String name, DocumentContent content) {
+            String value = request.getParameter(name);
+            if (StringUtils.isBlank(value)) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                content.close();
+                throw new IllegalArgumentException(name + " must be an integer: " + value);
+            }
+        }
+
+        /**
+         * 根据文件名或Content-Type确定扩展名
+         */
+        private String resolveExtension(String fileName, String contentType) {
+            if (fileName != null) {
+                int lastDot = fileName.lastIndexOf('.');
+                if (lastDot > 0 && lastDot < fileName.length() - 1) {
+                    return fileName.substring(lastDot + 1).toLowerCase();
+                }
+            }
+            if (contentType == null) {
+                return "";
+            }
+            String mimeType = contentType.split(";")[0].trim().toLowerCase();
+            String extension = UPLOAD_CONTENT_TYPES.get(mimeType);
+            return extension != null ? extension : "";
+        }
+    }
+
+    /**
+     * 作业状态处理器
+     * GET /jobs/{id} 返回作业当前状态;
+     * GET /jobs/{id}?waitFor=DONE&timeout=30000 长轮询,作业到达目标状态或超时后返回,等待期间不占用工作线程;
+     * POST /jobs/{id}/reprint 使用缓存的PDF重新打印,请求体可选,可覆盖printer、copies、pageRanges
+     */
+    private class JobsHandler extends AbstractHandler {
+
+        private static final String REPRINT_SUFFIX = "/reprint";
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+
+            setCorsHeaders(response);
+            baseRequest.setHandled(true);
+
+            if ("POST".equals(request.getMethod()) && target.endsWith(REPRINT_SUFFIX)) {
+                String jobId = target.substring(target.startsWith("/") ? 1 : 0, target.length() - REPRINT_SUFFIX.length());
+                handleReprint(jobId, request, response);
+                return;
+            }
+
+            if (!"GET".equals(request.getMethod())) {
+                sendErrorResponse(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Method Not Allowed");
+                return;
+            }
+
+            String jobId = target.startsWith("/") ? target.substring(1) : target;
+            PrintJob job = printService.getJobRegistry().get(jobId);
+            if (job == null) {
+                sendErrorResponse(response, HttpServletResponse.SC_NOT_FOUND, "Job not found: " + jobId);
+                return;
+            }
+
+            String waitFor = request.getParameter("waitFor");
+            if (waitFor == null || waitFor.isEmpty()) {
+                sendJobResponse(response, job);
+                return;
+            }
+
+            PrintJob.State targetState;
+            long timeout;
+            try {
+                targetState = PrintJob.State.valueOf(waitFor.toUpperCase());
+                String timeoutParam = request.getParameter("timeout");
+                timeout = timeoutParam == null ? AppConfig.Jobs.MAX_WAIT_MS : Long.parseLong(timeoutParam);
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid waitFor/timeout: " + e.getMessage());
+                return;
+            }
+
+            CompletableFuture<PrintJob> reached = job.awaitState(targetState);
+            if (reached.isDone() || timeout <= 0) {
+                sendJobResponse(response, job);
+                return;
+            }
+
+            // 异步等待,作业状态变化或超时时再写回响应
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(Math.min(timeout, AppConfig.Jobs.MAX_WAIT_MS));
+            AtomicBoolean responded = new AtomicBoolean();
+
+            asyncContext.addListener(new AsyncListener() {
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    reached.cancel(false);
+                    completeJobResponse(asyncContext, job, responded);
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    reached.cancel(false);
+                    responded.set(true);
+                }
+
+                @Override
+                public void onComplete(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+
+            reached.thenAccept(finished -> completeJobResponse(asyncContext, job, responded));
+        }
+
+        /**
+         * 重新打印,原作业的内容不在缓存中时返回404
+         */
+        private void handleReprint(String jobId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            PrintDTO overrides;
+            try {
+                String body = readRequestBody(request);
+                overrides = body.trim().isEmpty() ? null : JSONObject.parseObject(body, PrintDTO.class);
+            } catch (Exception e) {
+                sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON format: " + e.getMessage());
+                return;
+            }
+
+            PrintJob job;
+            try {
+                job = printService.reprint(jobId, overrides);
+            } catch (RejectedExecutionException e) {
+                sendRejectedResponse(response, Collections.<PrintJob>emptyList());
+                return;
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid print data: " + e.getMessage());
+                return;
+            }
+            if (job == null) {
+                sendErrorResponse(response, HttpServletResponse.SC_NOT_FOUND, "Job not cached for reprint: " + jobId);
+                return;
+            }
+            sendSubmittedResponse(response, Collections.singletonList(job));
+        }
+
+        private void completeJobResponse(AsyncContext asyncContext, PrintJob job, AtomicBoolean responded) {
+            if (!responded.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sendJobResponse((HttpServletResponse) asyncContext.getResponse(), job);
+            } catch (Exception e) {
+                logger.warn("返回作业状态失败: {}", e.getMessage());
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        private void sendJobResponse(HttpServletResponse response, PrintJob job) throws IOException {
+            JSONObject result = new JSONObject(true);
+            result.put("success", true);
+            result.putAll(job.toMap());
+            result.put("timestamp", System.currentTimeMillis());
+            sendJsonResponse(response, HttpServletResponse.SC_OK, result);
+        }
+    }
+
+    /**
+     * 打印机列表处理器
+     * GET /printers 返回注册表缓存的打印机名称和能力,以及别名和打印机池配置,不触发系统查找;
+     * GET /printers?refresh=true 先刷新注册表再返回
+     */
+    private class PrintersHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+
+            setCorsHeaders(response);
+
+            if ("GET".equals(request.getMethod())) {
+                PrinterRegistry printerRegistry = printService.getPrinterRegistry();
+                if (Boolean.parseBoolean(request.getParameter("refresh"))) {
+                    try {
+                        printerRegistry.refresh().get(PRINTER_REFRESH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException | TimeoutException e) {
+                        logger.warn("刷新打印机列表未完成,返回缓存结果: {}", e.toString());
+                    }
+                }
+
+                JSONObject printers = new JSONObject(true);
+                printers.put("printers", printerRegistry.getPrinters());
+                printers.put("aliases", printService.getPrinterResolver().getAliases());
+                printers.put("pools", printService.getPrinterPools().getPools());
+                printers.put("refreshedAt", printerRegistry.getRefreshedAt());
+
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType("application/json; charset=UTF-8");
+                response.getWriter().write(printers.toJSONString());
+            } else {
+                sendErrorResponse(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Method Not Allowed");
+            }
+
+            baseRequest.setHandled(true);
+        }
+    }
+
+    /**
+     * 运行指标处理器
+     */
+    private class MetricsHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+
+            setCorsHeaders(response);
+
+            if ("GET".equals(request.getMethod())) {
+                JSONObject metrics = new JSONObject(true);
+                metrics.put("queue", printService.getQueueStatistics());
+                metrics.put("pipeline", printService.getPipeline().getStatistics());
+                metrics.put("jobs", printService.getJobRegistry().getStatistics());
+                metrics.put("fetch", printService.getDocumentFetcher().getStatistics());
+                metrics.put("office", printService.getOfficeConverter().getStatistics());
+                metrics.put("startup", printService.getStartupStatistics());
+                metrics.put("pdf", printService.getPdfStatistics());
+                metrics.put("render", printService.getRenderStatistics());
+                metrics.put("printers", printService.getPrinterStatistics());
+                metrics.put("discovery", printService.getPrinterRegistry().getStatistics());
+                metrics.put("reprintCache", printService.getReprintCache().getStatistics());
+                if (printService.getConversionCache() != null) {
+                    metrics.put("conversionCache", printService.getConversionCache().getStatistics());
+                }
+                metrics.put("timestamp", System.currentTimeMillis());
+
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType("application/json; charset=UTF-8");
+                response.getWriter().write(metrics.toJSONString());
+            } else {
+                sendErrorResponse(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Method Not Allowed");
+            }
+
+            baseRequest.setHandled(true);
+        }
+    }
+
     /**
      * CORS处理器（处理根路径的OPTIONS请求）
      */
@@ -0,0 +1,146 @@
+package com.magicyuan.print.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.print.attribute.standard.PageRanges;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * 打印的页码选择
+ * 由若干升序、互不重叠的页码区间组成,页码从0开始,区间为[from, to)
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public final class PageSelection {
+
+    private final List<int[]> ranges;
+    private final int pageCount;
+
+    private PageSelection(List<int[]> ranges) {
+        this.ranges = ranges;
+        int count = 0;
+        for (int[] range : ranges) {
+            count += range[1] - range[0];
+        }
+        this.pageCount = count;
+    }
+
+    /**
+     * 检查页码范围格式
+     * @param pageRanges 页码范围,如 1-3,5,页码从1开始;为空表示全部页面
+     * @throws IllegalArgumentException 格式错误
+     */
+    public static void validate(String pageRanges) {
+        if (StringUtils.isNotBlank(pageRanges)) {
+            parseMembers(pageRanges);
+        }
+    }
+
+    /**
+     * 按文档页数解析页码范围,超出文档的部分被忽略
+     * @param pageRanges 页码范围,如 1-3,5,页码从1开始;为空表示全部页面
+     * @throws IllegalArgumentException 格式错误,或没有页码落在文档内
+     */
+    public static PageSelection parse(String pageRanges, int documentPages) {
+        List<int[]> ranges = new ArrayList<>();
+        if (StringUtils.isBlank(pageRanges)) {
+            if (documentPages > 0) {
+                ranges.add(new int[] {0, documentPages});
+            }
+            return new PageSelection(ranges);
+        }
+
+        for (int[] member : parseMembers(pageRanges)) {
+            int from = member[0] - 1;
+            int to = Math.min(member[1], documentPages);
+            if (from < to) {
+                ranges.add(new int[] {from, to});
+            }
+        }
+        if (ranges.isEmpty()) {
+            throw new IllegalArgumentException("页码范围超出文档页数(" + documentPages + "): " + pageRanges);
+        }
+        return new PageSelection(ranges);
+    }
+
+    /**
+     * PageRanges将区间排序合并,页码从1开始且包含两端
+     */
+    private static int[][] parseMembers(String pageRanges) {
+        try {
+            return new PageRanges(pageRanges.replace(" ", "")).getMembers();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("页码范围格式错误: " + pageRanges);
+        }
+    }
+
+    /**
+     * 选中的页数
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * 页码区间,每项为[from, to)
+     */
+    public List<int[]> getRanges() {
+        return ranges;
+    }
+
+    /**
+     * 第一页的页码,没有选中页面时为-1
+     */
+    public int getFirstPage() {
+        return ranges.isEmpty() ? -1 : ranges.get(0)[0];
+    }
+
+    /**
+     * 最后一页的页码,没有选中页面时为-1
+     */
+    public int getLastPage() {
+        return ranges.isEmpty() ? -1 : ranges.get(ranges.size() - 1)[1] - 1;
+    }
+
+    /**
+     * 大于等于page的第一个选中页码
+     * @return 页码,没有时返回-1
+     */
+    public int nextPage(int page) {
+        for (int[] range : ranges) {
+            if (page < range[1]) {
+                return Math.max(page, range[0]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按选中页面的顺序截取一段
+     * @param skip 跳过的选中页数
+     * @param count 截取的页数
+     */
+    public PageSelection slice(int skip, int count) {
+        List<int[]> sliced = new ArrayList<>();
+        int remaining = count;
+        for (int[] range : ranges) {
+            if (remaining <= 0) {
+                break;
+            }
+            int length = range[1] - range[0];
+            if (skip >= length) {
+                skip -= length;
+                continue;
+            }
+            int from = range[0] + skip;
+            int to = Math.min(range[1], from + remaining);
+            sliced.add(new int[] {from, to});
+            remaining -= to - from;
+            skip = 0;
+        }
+        return new PageSelection(sliced);
+    }
+}
@@ -0,0 +1,145 @@
+package com.magicyuan.print.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.print.Doc;
+import javax.print.DocFlavor;
+import javax.print.DocPrintJob;
+import javax.print.PrintException;
+import javax.print.SimpleDoc;
+import javax.print.attribute.HashPrintRequestAttributeSet;
+import javax.print.attribute.PrintRequestAttributeSet;
+import javax.print.attribute.standard.Copies;
+import javax.print.attribute.standard.JobName;
+import javax.print.attribute.standard.OrientationRequested;
+
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.dto.PrintDTO;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PDF直通打印
+ * 打印机(或CUPS队列)本身接受PDF时,通过DocPrintJob直接发送PDF字节,不经Java2D渲染;
+ * 打印机不支持或发送失败时由调用方回退到Java2D打印
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PdfPassthrough {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfPassthrough.class);
+
+    /** 按优先顺序尝试的文档格式 */
+    private static final DocFlavor[] FLAVORS = {
+        DocFlavor.INPUT_STREAM.PDF,
+        DocFlavor.INPUT_STREAM.AUTOSENSE
+    };
+
+    private final boolean allPrinters;
+    private final Set<String> printers = new HashSet<>();
+
+    private final AtomicLong passthroughJobs = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * @param printers 启用直通的打印机名称,逗号分隔,*表示所有支持PDF的打印机
+     */
+    public PdfPassthrough(String printers) {
+        boolean all = false;
+        for (String name : StringUtils.split(StringUtils.defaultString(printers), ',')) {
+            name = name.trim();
+            if ("*".equals(name)) {
+                all = true;
+            } else if (!name.isEmpty()) {
+                this.printers.add(name.toLowerCase(Locale.ROOT));
+            }
+        }
+        this.allPrinters = all;
+    }
+
+    /**
+     * 是否为任何打印机启用了直通
+     */
+    public boolean isConfigured() {
+        return allPrinters || !printers.isEmpty();
+    }
+
+    /**
+     * 是否为该打印机启用了直通
+     */
+    public boolean isEnabled(javax.print.PrintService service) {
+        return service != null && (allPrinters || printers.contains(service.getName().toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * 查找打印机支持的PDF直通格式
+     * @return 文档格式,不支持时返回null
+     */
+    public static DocFlavor findFlavor(javax.print.PrintService service) {
+        for (DocFlavor flavor : FLAVORS) {
+            if (service.isDocFlavorSupported(flavor)) {
+                return flavor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 尝试直通打印
+     * @param copies 份数
+     * @return 已发送返回true;未启用、不支持或发送失败返回false,调用方应回退到Java2D打印
+     */
+    public boolean print(javax.print.PrintService service, DocumentContent pdf, PrintDTO printDTO, int copies) {
+        if (!isEnabled(service)) {
+            return false;
+        }
+        DocFlavor flavor = findFlavor(service);
+        if (flavor == null) {
+            logger.debug("打印机 {} 不接受PDF,使用Java2D打印", service.getName());
+            fallbacks.incrementAndGet();
+            return false;
+        }
+
+        PrintRequestAttributeSet attributes = new HashPrintRequestAttributeSet();
+        attributes.add(printDTO.isLandscape() ? OrientationRequested.LANDSCAPE : OrientationRequested.PORTRAIT);
+        if (copies > 1) {
+            attributes.add(new Copies(copies));
+        }
+        if (StringUtils.isNotBlank(printDTO.getFileName())) {
+            attributes.add(new JobName(printDTO.getFileName(), null));
+        }
+
+        try (InputStream in = pdf.openStream()) {
+            Doc doc = new SimpleDoc(in, flavor, null);
+            DocPrintJob job = service.createPrintJob();
+            job.print(doc, attributes);
+            passthroughJobs.incrementAndGet();
+            logger.info("PDF直通打印: {} -> {} ({})", printDTO.getFileName(), service.getName(), flavor.getMimeType());
+            return true;
+        } catch (PrintException | IOException e) {
+            logger.warn("PDF直通打印失败,回退到Java2D打印: {} - {}", service.getName(), e.getMessage());
+            fallbacks.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * 获取直通打印统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("printers", allPrinters ? "*" : StringUtils.join(printers, ','));
+        stats.put("jobs", passthroughJobs.get());
+        stats.put("fallbacks", fallbacks.get());
+        return stats;
+    }
+}
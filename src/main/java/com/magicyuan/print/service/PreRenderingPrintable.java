@@ -0,0 +1,219 @@
+package com.magicyuan.print.service;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.document.PdfLoader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 预渲染打印
+ * 在ForkJoin线程池中提前并行渲染后续页面,打印回调只需绘制已完成的位图;
+ * PDDocument不是线程安全的,每个渲染线程各自加载一份文档
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PreRenderingPrintable implements Printable, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreRenderingPrintable.class);
+
+    /** 打印线程使用的文档,只用于读取页面尺寸 */
+    private final PDDocument document;
+    private final DocumentContent content;
+    private final PdfLoader pdfLoader;
+    private final ForkJoinPool pool;
+    private final float dpi;
+    private final int lookahead;
+    /** 要打印的页码,只预渲染选中的页面 */
+    private final PageSelection selection;
+
+    /** 已提交渲染的页面,受this锁保护 */
+    private final Map<Integer, CompletableFuture<BufferedImage>> pages = new HashMap<>();
+    /** 各渲染线程加载的文档 */
+    private final Map<Thread, Renderer> renderers = new ConcurrentHashMap<>();
+
+    /** 以下字段受this锁保护 */
+    private int rendering;
+    private boolean closed;
+
+    /**
+     * @param document 已加载的文档,用于读取页数和页面尺寸
+     * @param content 文档内容,渲染线程从中加载各自的文档
+     * @param dpi 渲染分辨率
+     * @param lookahead 最多提前渲染的页数(含当前页)
+     * @param selection 要打印的页码
+     */
+    public PreRenderingPrintable(PDDocument document, DocumentContent content, PdfLoader pdfLoader,
+                                 ForkJoinPool pool, float dpi, int lookahead, PageSelection selection) {
+        this.document = document;
+        this.content = content;
+        this.pdfLoader = pdfLoader;
+        this.pool = pool;
+        this.dpi = dpi;
+        this.lookahead = Math.max(1, lookahead);
+        this.selection = selection;
+    }
+
+    @Override
+    public int print(Graphics graphics, PageFormat pageFormat, int pageIndex) throws PrinterException {
+        if (pageIndex < 0 || pageIndex >= document.getNumberOfPages()) {
+            return NO_SUCH_PAGE;
+        }
+
+        BufferedImage image;
+        try {
+            image = schedule(pageIndex).join();
+        } catch (CompletionException e) {
+            PrinterException exception = new PrinterException("预渲染第" + (pageIndex + 1) + "页失败: " + e.getCause().getMessage());
+            exception.initCause(e.getCause());
+            throw exception;
+        }
+        if (image == null) {
+            throw new PrinterException("预渲染已关闭");
+        }
+
+        drawPage((Graphics2D) graphics, pageFormat, document.getPage(pageIndex), image);
+        return PAGE_EXISTS;
+    }
+
+    /**
+     * 提交当前页及后续选中页的渲染,丢弃已打印过的页面
+     * 打印系统可能多次请求同一页,当前页在请求下一页之前保留;已关闭时不再提交渲染
+     */
+    private synchronized CompletableFuture<BufferedImage> schedule(int pageIndex) {
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Iterator<Integer> iterator = pages.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() < pageIndex) {
+                iterator.remove();
+            }
+        }
+
+        int page = pageIndex;
+        for (int scheduled = 0; scheduled < lookahead && page >= 0 && page < document.getNumberOfPages(); scheduled++) {
+            if (!pages.containsKey(page)) {
+                final int index = page;
+                pages.put(page, CompletableFuture.supplyAsync(() -> render(index), pool));
+            }
+            page = selection.nextPage(page + 1);
+        }
+        return pages.get(pageIndex);
+    }
+
+    /**
+     * 在渲染线程中渲染一页
+     * @return 渲染结果,已关闭时返回null
+     */
+    private BufferedImage render(int pageIndex) {
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+            rendering++;
+        }
+        try {
+            Renderer renderer = renderers.get(Thread.currentThread());
+            if (renderer == null) {
+                renderer = new Renderer(pdfLoader.load(content));
+                renderers.put(Thread.currentThread(), renderer);
+            }
+            return renderer.renderer.renderImageWithDPI(pageIndex, dpi, ImageType.RGB);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            synchronized (this) {
+                rendering--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 按SCALE_TO_FIT方式将位图居中绘制到可打印区域,与PDFPrintable的布局一致
+     */
+    private void drawPage(Graphics2D graphics, PageFormat pageFormat, PDPage page, BufferedImage image) {
+        PDRectangle cropBox = page.getCropBox();
+        boolean rotated = page.getRotation() == 90 || page.getRotation() == 270;
+        double pageWidth = rotated ? cropBox.getHeight() : cropBox.getWidth();
+        double pageHeight = rotated ? cropBox.getWidth() : cropBox.getHeight();
+
+        double imageableWidth = pageFormat.getImageableWidth();
+        double imageableHeight = pageFormat.getImageableHeight();
+        double scale = Math.min(imageableWidth / pageWidth, imageableHeight / pageHeight);
+
+        AffineTransform transform = new AffineTransform();
+        transform.translate(pageFormat.getImageableX() + (imageableWidth - pageWidth * scale) / 2,
+            pageFormat.getImageableY() + (imageableHeight - pageHeight * scale) / 2);
+        transform.scale(pageWidth * scale / image.getWidth(), pageHeight * scale / image.getHeight());
+
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, transform, null);
+    }
+
+    /**
+     * 停止预渲染,等待正在渲染的页面结束后关闭渲染线程加载的文档
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            pages.clear();
+            boolean interrupted = false;
+            while (rendering > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (Renderer renderer : renderers.values()) {
+            try {
+                renderer.loaded.close();
+            } catch (IOException e) {
+                logger.warn("关闭预渲染文档失败: {}", e.getMessage());
+            }
+        }
+        renderers.clear();
+    }
+
+    private static final class Renderer {
+
+        private final PdfLoader.LoadedPdf loaded;
+        private final PDFRenderer renderer;
+
+        private Renderer(PdfLoader.LoadedPdf loaded) {
+            this.loaded = loaded;
+            this.renderer = new PDFRenderer(loaded.getDocument());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.magicyuan.print.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 打印任务准入队列
+ * 有界队列 + 固定数量的工作线程,队列满时按拒绝策略处理,为HTTP接口提供背压
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintJobQueue<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrintJobQueue.class);
+
+    /** 用于估算消费速率的最近完成记录数 */
+    private static final int DRAIN_WINDOW = 64;
+
+    /** 没有消费记录时假定的单任务耗时(毫秒) */
+    private static final long DEFAULT_JOB_MILLIS = 3000L;
+
+    private static final int MAX_RETRY_AFTER_SECONDS = 300;
+
+    private final BlockingQueue<T> queue;
+    private final Consumer<T> worker;
+    private final RejectPolicy rejectPolicy;
+    private final long offerTimeoutMillis;
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /** 最近完成时间戳的环形缓冲区 */
+    private final long[] drainTimestamps = new long[DRAIN_WINDOW];
+    private int drainIndex;
+    private int drainSize;
+
+    private volatile boolean running = true;
+
+    /**
+     * 构造函数
+     * @param name 工作线程名前缀
+     * @param capacity 队列容量
+     * @param workers 工作线程数
+     * @param rejectPolicy 队列满时的拒绝策略
+     * @param offerTimeoutMillis WAIT策略下的最长等待时间
+     * @param worker 实际处理任务的回调
+     */
+    public PrintJobQueue(String name, int capacity, int workers, RejectPolicy rejectPolicy, long offerTimeoutMillis, Consumer<T> worker) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.worker = worker;
+        this.rejectPolicy = rejectPolicy;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            Thread thread = new Thread(this::runWorker, name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+    }
+
+    /**
+     * 提交任务
+     * @throws RejectedExecutionException 队列已满或已关闭
+     */
+    public void submit(T task) {
+        if (!running) {
+            throw new RejectedExecutionException("打印队列已关闭");
+        }
+
+        boolean accepted;
+        if (rejectPolicy == RejectPolicy.WAIT) {
+            try {
+                accepted = queue.offer(task, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(task);
+        }
+
+        if (!accepted) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("打印队列已满,当前深度: " + queue.size());
+        }
+        submittedCount.incrementAndGet();
+    }
+
+    /**
+     * 工作线程主循环
+     */
+    private void runWorker() {
+        while (running) {
+            T task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                worker.accept(task);
+            } catch (Exception e) {
+                logger.error("执行打印任务时发生错误: {}", e.getMessage(), e);
+            } finally {
+                completedCount.incrementAndGet();
+                recordDrain(System.currentTimeMillis());
+            }
+        }
+    }
+
+    private synchronized void recordDrain(long timestamp) {
+        drainTimestamps[drainIndex] = timestamp;
+        drainIndex = (drainIndex + 1) % DRAIN_WINDOW;
+        if (drainSize < DRAIN_WINDOW) {
+            drainSize++;
+        }
+    }
+
+    /**
+     * 最近的消费速率(任务/秒),样本不足时返回0
+     */
+    public synchronized double getDrainRate() {
+        if (drainSize < 2) {
+            return 0;
+        }
+        long newest = drainTimestamps[(drainIndex - 1 + DRAIN_WINDOW) % DRAIN_WINDOW];
+        long oldest = drainTimestamps[(drainIndex - drainSize + DRAIN_WINDOW) % DRAIN_WINDOW];
+        long span = Math.max(1, newest - oldest);
+        return (drainSize - 1) * 1000.0 / span;
+    }
+
+    /**
+     * 根据当前队列深度和消费速率估算客户端应等待的秒数
+     */
+    public int estimateRetryAfterSeconds() {
+        double rate = getDrainRate();
+        double seconds = rate > 0 ? queue.size() / rate : queue.size() * DEFAULT_JOB_MILLIS / 1000.0;
+        return (int) Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, Math.ceil(seconds)));
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 获取队列统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("depth", getDepth());
+        stats.put("capacity", getCapacity());
+        stats.put("workers", workerThreads.size());
+        stats.put("rejectPolicy", rejectPolicy.name());
+        stats.put("submitted", submittedCount.get());
+        stats.put("completed", completedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        stats.put("drainRatePerSecond", Math.round(getDrainRate() * 100) / 100.0);
+        return stats;
+    }
+
+    /**
+     * 关闭队列,未执行的任务将被丢弃
+     */
+    public void shutdown() {
+        running = false;
+        int dropped = queue.size();
+        queue.clear();
+        for (Thread thread : workerThreads) {
+            thread.interrupt();
+        }
+        if (dropped > 0) {
+            logger.warn("打印队列关闭,丢弃未执行任务: {}", dropped);
+        }
+    }
+
+    /**
+     * 队列满时的拒绝策略
+     */
+    public enum RejectPolicy {
+
+        /** 立即拒绝 */
+        REJECT,
+
+        /** 等待一段时间,仍无空位再拒绝 */
+        WAIT;
+
+        public static RejectPolicy parse(String value) {
+            return "wait".equalsIgnoreCase(value) ? WAIT : REJECT;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.magicyuan.print.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.magicyuan.print.model.PrintJob;
+
+/**
+ * 打印作业索引
+ * 基于ConcurrentHashMap按作业ID O(1)查询,不加锁;作业结束时进入已结束队列,超过容量时按结束顺序淘汰最早的已结束作业,
+ * 未结束的作业不会被淘汰,全部记录都未结束时暂时超出容量(未结束作业数受准入队列容量限制)
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintJobRegistry {
+
+    private final int capacity;
+    private final Map<String, PrintJob> jobs = new ConcurrentHashMap<>();
+    /** 按结束顺序排列的已结束作业ID,受this锁保护 */
+    private final LinkedHashSet<String> finishedOrder = new LinkedHashSet<>();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    public PrintJobRegistry(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * 登记作业,作业结束时自动进入已结束队列
+     */
+    public void register(PrintJob job) {
+        synchronized (this) {
+            jobs.put(job.getId(), job);
+            evictFinished();
+        }
+        // 已结束的作业立即回调
+        job.awaitState(PrintJob.State.DONE).thenAccept(this::finished);
+    }
+
+    private synchronized void finished(PrintJob job) {
+        if (jobs.get(job.getId()) == job) {
+            finishedOrder.add(job.getId());
+            evictFinished();
+        }
+    }
+
+    /**
+     * 按结束顺序淘汰已结束的作业,直到不超过容量
+     */
+    private void evictFinished() {
+        Iterator<String> iterator = finishedOrder.iterator();
+        while (jobs.size() > capacity && iterator.hasNext()) {
+            String id = iterator.next();
+            iterator.remove();
+            if (jobs.remove(id) != null) {
+                evictedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 移除作业(如提交被拒绝)
+     */
+    public synchronized void remove(PrintJob job) {
+        if (jobs.remove(job.getId(), job)) {
+            finishedOrder.remove(job.getId());
+        }
+    }
+
+    /**
+     * 按ID查询作业
+     * @return 作业,不存在或已淘汰时返回null
+     */
+    public PrintJob get(String id) {
+        return id == null ? null : jobs.get(id);
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<PrintJob.State, Integer> states = new LinkedHashMap<>();
+        for (PrintJob.State state : PrintJob.State.values()) {
+            states.put(state, 0);
+        }
+        for (PrintJob job : jobs.values()) {
+            states.merge(job.getState(), 1, Integer::sum);
+        }
+
+        stats.put("tracked", jobs.size());
+        stats.put("capacity", capacity);
+        stats.put("evicted", evictedCount.get());
+        for (Map.Entry<PrintJob.State, Integer> entry : states.entrySet()) {
+            stats.put(entry.getKey().name().toLowerCase(), entry.getValue());
+        }
+        return stats;
+    }
+}
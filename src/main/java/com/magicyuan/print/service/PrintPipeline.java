@@ -0,0 +1,271 @@
+package com.magicyuan.print.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 打印流水线
+ * 下载、转换、假脱机三个阶段各有独立的有界线程池,阶段之间通过有界队列连接,下游满时阻塞上游;
+ * 后续任务的下载和转换与前面任务的假脱机并行;每台打印机一个假脱机线程,同一打印机按提交顺序执行,
+ * 不同打印机互不阻塞
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintPipeline<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrintPipeline.class);
+
+    private final Stage fetchStage;
+    private final Stage convertStage;
+    private final Consumer<T> fetch;
+    private final Consumer<T> convert;
+    private final Consumer<T> spool;
+
+    private final String name;
+    private final int spoolCapacity;
+    /** 每台打印机的假脱机通道 */
+    private final Map<String, SpoolLane> lanes = new ConcurrentHashMap<>();
+    private final long startedAt = System.nanoTime();
+
+    private volatile boolean running = true;
+
+    /**
+     * 构造函数
+     * @param name 线程名前缀
+     * @param fetchThreads 下载线程数
+     * @param convertThreads 转换线程数
+     * @param stageCapacity 下载和转换阶段各自的等待队列容量
+     * @param spoolCapacity 每台打印机已进入流水线、尚未开始假脱机的任务数上限
+     * @param fetch 下载阶段,需自行处理异常
+     * @param convert 转换阶段,需自行处理异常
+     * @param spool 假脱机阶段,每台打印机在单个线程中按提交顺序执行
+     */
+    public PrintPipeline(String name, int fetchThreads, int convertThreads, int stageCapacity, int spoolCapacity,
+                         Consumer<T> fetch, Consumer<T> convert, Consumer<T> spool) {
+        this.fetchStage = new Stage(name + "-fetch", fetchThreads, stageCapacity);
+        this.convertStage = new Stage(name + "-convert", convertThreads, stageCapacity);
+        this.fetch = fetch;
+        this.convert = convert;
+        this.spool = spool;
+        this.name = name;
+        this.spoolCapacity = Math.max(1, spoolCapacity);
+    }
+
+    /**
+     * 提交任务,该打印机的假脱机通道已满时阻塞
+     * @param lane 目标打印机
+     * @throws RejectedExecutionException 流水线已关闭
+     */
+    public void submit(String lane, T task) throws InterruptedException {
+        if (!running) {
+            throw new RejectedExecutionException("打印流水线已关闭");
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // 先占住假脱机顺序中的位置,再开始下载
+        lanes.computeIfAbsent(lane, SpoolLane::new).queue.put(future);
+        // 任何路径上都要完成future,否则假脱机线程会一直等待这个位置
+        try {
+            fetchStage.execute(() -> {
+                try {
+                    fetchStage.run(fetch, task);
+                    convertStage.execute(() -> {
+                        try {
+                            convertStage.run(convert, task);
+                        } finally {
+                            future.complete(task);
+                        }
+                    });
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取各阶段统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fetch", fetchStage.getStatistics());
+        stats.put("convert", convertStage.getStatistics());
+
+        Map<String, Object> spoolStats = new LinkedHashMap<>();
+        for (SpoolLane lane : lanes.values()) {
+            spoolStats.put(lane.printer, lane.getStatistics());
+        }
+        stats.put("spool", spoolStats);
+        return stats;
+    }
+
+    /**
+     * 启动以来线程忙碌时间占比
+     */
+    private double utilization(long busyNanos, int threads) {
+        long elapsed = Math.max(1, System.nanoTime() - startedAt);
+        return Math.round(busyNanos * 1000.0 / elapsed / threads) / 1000.0;
+    }
+
+    /**
+     * 关闭流水线,未执行的任务将被丢弃
+     */
+    public void shutdown() {
+        running = false;
+        fetchStage.executor.shutdownNow();
+        convertStage.executor.shutdownNow();
+        int dropped = 0;
+        for (SpoolLane lane : lanes.values()) {
+            lane.thread.interrupt();
+            dropped += lane.queue.size();
+            lane.queue.clear();
+        }
+        if (dropped > 0) {
+            logger.warn("打印流水线关闭,丢弃未完成任务: {}", dropped);
+        }
+    }
+
+    /**
+     * 打印机的假脱机通道
+     * 有界队列按提交顺序保存等待假脱机的任务,元素在转换阶段结束后完成
+     */
+    private final class SpoolLane {
+
+        private final String printer;
+        private final BlockingQueue<CompletableFuture<T>> queue = new ArrayBlockingQueue<>(spoolCapacity);
+        private final Thread thread;
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private volatile boolean spooling;
+
+        private SpoolLane(String printer) {
+            this.printer = printer;
+            this.thread = new Thread(this::run, name + "-spool-" + printer);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * 假脱机线程主循环
+         */
+        private void run() {
+            while (running) {
+                T task;
+                try {
+                    // 按提交顺序取出,等待该任务完成转换
+                    task = queue.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    logger.warn("打印任务未能进入假脱机阶段: {}", e.getCause().toString());
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                spooling = true;
+                try {
+                    spool.accept(task);
+                } catch (Exception e) {
+                    logger.error("执行打印任务时发生错误: {}", e.getMessage(), e);
+                } finally {
+                    spooling = false;
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                    completed.incrementAndGet();
+                }
+            }
+        }
+
+        private Map<String, Object> getStatistics() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("threads", 1);
+            stats.put("active", spooling ? 1 : 0);
+            stats.put("depth", queue.size());
+            stats.put("capacity", spoolCapacity);
+            stats.put("completed", completed.get());
+            stats.put("utilization", utilization(busyNanos.get(), 1));
+            return stats;
+        }
+    }
+
+    /**
+     * 流水线阶段
+     * 固定大小线程池加有界队列,队列满时提交方阻塞等待
+     */
+    private final class Stage {
+
+        private final ThreadPoolExecutor executor;
+        private final int threads;
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private Stage(String name, int threads, int capacity) {
+            this.threads = Math.max(1, threads);
+            AtomicInteger index = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + index.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("打印流水线已关闭");
+                    }
+                    try {
+                        pool.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("等待打印流水线时被中断", e);
+                    }
+                });
+        }
+
+        private void execute(Runnable task) {
+            executor.execute(task);
+        }
+
+        /**
+         * 执行阶段处理并累计忙碌时间(不含等待下游的时间)
+         */
+        private void run(Consumer<T> stage, T task) {
+            long start = System.nanoTime();
+            try {
+                stage.accept(task);
+            } catch (Exception e) {
+                logger.error("执行打印流水线阶段时发生错误: {}", e.getMessage(), e);
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        private Map<String, Object> getStatistics() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("threads", threads);
+            stats.put("active", executor.getActiveCount());
+            stats.put("depth", executor.getQueue().size());
+            stats.put("capacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+            stats.put("completed", executor.getCompletedTaskCount());
+            stats.put("utilization", utilization(busyNanos.get(), threads));
+            return stats;
+        }
+    }
+}
@@ -1,18 +1,39 @@
 package com.magicyuan.print.service;
 
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.print.Book;
 import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
 import java.awt.print.PrinterJob;
-import java.io.File;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.file.Files;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.magicyuan.print.config.AppConfig;
+import com.magicyuan.print.converter.ConversionCache;
 import com.magicyuan.print.converter.OfficeConverter;
+import com.magicyuan.print.document.DiskLruCache;
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.document.DocumentFetcher;
+import com.magicyuan.print.document.PdfLoader;
 import com.magicyuan.print.dto.PrintDTO;
 import org.apache.commons.lang.StringUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -22,7 +43,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.magicyuan.print.converter.ImageConverter;
+import com.magicyuan.print.model.PrintJob;
 import com.magicyuan.print.model.PrintQueueModel;
+import com.magicyuan.print.service.ShardGroup.Shard;
 
 /**
  * 打印服务类
@@ -36,28 +59,124 @@ public class PrintService {
 
     private static final Logger logger = LoggerFactory.getLogger(PrintService.class);
 
+    /** 单个作业的最大打印份数 */
+    private static final int MAX_COPIES = 999;
+
     private final PrintQueueModel printQueueModel;
     private final ExecutorService executorService;
     private final OfficeConverter officeConverter;
     private final ImageConverter imageConverter;
+    private final DocumentFetcher documentFetcher;
+    private final ConversionCache conversionCache;
+    private final PdfLoader pdfLoader;
+    private final PdfPassthrough pdfPassthrough;
+    /** 预渲染线程池,未启用预渲染时为null */
+    private final ForkJoinPool renderPool;
+    /** 每台打印机一个准入队列,元素为一次打印提交:单个作业、合并打印的一批作业,或大文档的一个分片 */
+    private final Map<String, PrintJobQueue<List<PrintItem>>> jobQueues = new ConcurrentHashMap<>();
+    private final PrinterRegistry printerRegistry;
+    private final PrinterResolver printerResolver;
+    private final PrinterPools printerPools;
+    private final PrintPipeline<List<PrintItem>> pipeline;
+    private final PrintJobRegistry jobRegistry;
+    private final ReprintCache reprintCache;
+
+    /** 启动耗时统计 */
+    private final long serviceReadyAt;
+    private final AtomicLong firstPrintAt = new AtomicLong();
+
+    /** 单个作业观测到的最大堆增长 */
+    private final AtomicLong maxJobPeakHeap = new AtomicLong();
+
+    /** 打印速度统计,分别记录按需渲染和预渲染 */
+    private final PageRate lazyRate = new PageRate();
+    private final PageRate preRenderRate = new PageRate();
 
     public PrintService(PrintQueueModel printQueueModel) {
         this.printQueueModel = printQueueModel;
         this.executorService = Executors.newCachedThreadPool();
-        this.officeConverter = new OfficeConverter();
-        this.imageConverter = new ImageConverter();
+        this.documentFetcher = new DocumentFetcher(
+            AppConfig.Fetch.CONNECT_TIMEOUT_MS,
+            AppConfig.Fetch.READ_TIMEOUT_MS,
+            AppConfig.Fetch.MAX_CONNECTIONS_PER_HOST,
+            AppConfig.Fetch.MEMORY_THRESHOLD,
+            AppConfig.Fetch.MAX_SIZE,
+            createDocumentCache(),
+            AppConfig.Cache.TTL_SECONDS * 1000L);
+        this.conversionCache = createConversionCache();
+        this.pdfLoader = new PdfLoader(
+            PdfLoader.Mode.parse(AppConfig.Pdf.MEMORY_MODE),
+            AppConfig.Pdf.HEAP_PER_DOCUMENT,
+            AppConfig.Pdf.HEAP_BUDGET,
+            DocumentContent.getTempDirectory().toFile());
+        this.pdfPassthrough = new PdfPassthrough(AppConfig.Render.PASSTHROUGH_PRINTERS);
+        this.renderPool = AppConfig.Render.PRE_RENDER ? new ForkJoinPool(AppConfig.Render.THREADS) : null;
+        this.officeConverter = new OfficeConverter(conversionCache);
+        this.imageConverter = new ImageConverter(conversionCache);
+        this.jobRegistry = new PrintJobRegistry(AppConfig.Jobs.HISTORY_SIZE);
+        this.reprintCache = new ReprintCache(AppConfig.Reprint.MAX_BYTES, AppConfig.Reprint.MEMORY_BYTES,
+            AppConfig.Reprint.TTL_SECONDS * 1000L);
+        this.pipeline = new PrintPipeline<>("print",
+            AppConfig.Pipeline.FETCH_THREADS,
+            AppConfig.Pipeline.CONVERT_THREADS,
+            AppConfig.Pipeline.STAGE_CAPACITY,
+            AppConfig.Pipeline.SPOOL_CAPACITY,
+            this::fetchItems,
+            this::convertItems,
+            this::spoolItems);
+        this.printerRegistry = new PrinterRegistry(AppConfig.Printers.LOOKUP_CACHE_MS);
+        this.printerResolver = new PrinterResolver(AppConfig.Printers.ALIASES, printerRegistry);
+        this.printerPools = new PrinterPools(AppConfig.Printers.POOLS, printerResolver, AppConfig.Printers.STATE_CACHE_MS);
+        printerRegistry.addListener(change -> {
+            printerPools.invalidateState(change.getAdded());
+            printerPools.invalidateState(change.getChanged());
+        });
         
-        // 输出格式支持信息
-        logSupportedFormats();
+        // Office转换器在后台初始化,完成后输出格式支持信息
+        officeConverter.getReadiness().thenRun(this::logSupportedFormats);
+
+        this.serviceReadyAt = System.currentTimeMillis();
+        logger.info("打印服务已就绪,距JVM启动 {} ms", serviceReadyAt - jvmStartTime());
     }
     
+    /**
+     * 创建文档磁盘缓存,目录不可用时不启用缓存
+     */
+    private static DiskLruCache createDocumentCache() {
+        if (!AppConfig.Cache.ENABLED) {
+            return null;
+        }
+        try {
+            return new DiskLruCache("文档", Paths.get(AppConfig.Cache.DIRECTORY), AppConfig.Cache.MAX_BYTES);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("文档缓存目录不可用,不启用缓存: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 创建转换结果缓存,目录不可用时不启用缓存
+     */
+    private static ConversionCache createConversionCache() {
+        if (!AppConfig.Cache.CONVERSION_ENABLED) {
+            return null;
+        }
+        try {
+            return new ConversionCache(new DiskLruCache("转换结果",
+                Paths.get(AppConfig.Cache.CONVERSION_DIRECTORY), AppConfig.Cache.CONVERSION_MAX_BYTES));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("转换缓存目录不可用,不启用缓存: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 输出支持的格式信息
      */
     private void logSupportedFormats() {
         logger.info("========== PrintBridge 格式支持 ==========");
         logger.info("✓ PDF格式: 完全支持");
-        logger.info("✓ 图片格式: PNG, JPG, GIF, BMP");
+        logger.info("✓ 图片格式: PNG, JPG, GIF, BMP, TIFF");
         
         if (officeConverter.isAvailable()) {
             logger.info("✓ Office格式: Word, Excel, PowerPoint");
@@ -88,13 +207,558 @@ public class PrintService {
         }, executorService);
     }
 
+    /**
+     * 提交打印任务到准入队列（不带对话框）
+     * @return 已登记的打印作业
+     * @throws RejectedExecutionException 队列已满
+     */
+    public PrintJob submit(PrintDTO printDTO) {
+        return submit(printDTO, null);
+    }
+
+    /**
+     * 提交已上传文档的打印任务,无需再按URL下载
+     * @param content 文档内容,作业结束(或被拒绝)后释放
+     * @return 已登记的打印作业
+     * @throws RejectedExecutionException 队列已满
+     * @throws IllegalArgumentException 打印机不存在,或份数、页码范围无效
+     */
+    public PrintJob submit(PrintDTO printDTO, DocumentContent content) {
+        return submit(printDTO, content, null);
+    }
+
+    /**
+     * @param reprintOf 被重新打印的作业ID,content为该作业缓存的PDF;不是重新打印时为null
+     */
+    private PrintJob submit(PrintDTO printDTO, DocumentContent content, String reprintOf) {
+        String printer;
+        try {
+            validateOptions(printDTO);
+            printer = printerPools.reserve(printDTO.getPrinter(), 1);
+        } catch (IllegalArgumentException e) {
+            if (content != null) {
+                content.close();
+            }
+            throw e;
+        }
+
+        PrintJob job = new PrintJob(printDTO, content, reprintOf);
+        jobRegistry.register(job);
+        String pool = printerPools.isPool(printDTO.getPrinter()) ? printDTO.getPrinter().trim() : null;
+        try {
+            getJobQueue(printer).submit(Collections.singletonList(new PrintItem(job, printer, pool)));
+        } catch (RejectedExecutionException e) {
+            jobRegistry.remove(job);
+            printerPools.getLoad(printer).release(1);
+            if (content != null) {
+                content.close();
+            }
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * 提交合并打印批次:所有文档转换为PDF后作为一个打印作业送入假脱机,每个文档仍有各自的作业记录
+     * @return 已登记的打印作业,顺序与输入一致
+     * @throws RejectedExecutionException 队列已满
+     * @throws IllegalArgumentException 打印机不存在,批次中的文档指定了不同的打印机,或份数、页码范围无效
+     */
+    public List<PrintJob> submitBatch(List<PrintDTO> printDTOList) {
+        String target = null;
+        for (PrintDTO printDTO : printDTOList) {
+            validateOptions(printDTO);
+            String key = printerPools.isPool(printDTO.getPrinter())
+                ? printDTO.getPrinter().trim().toLowerCase(Locale.ROOT)
+                : printerResolver.resolveKey(printDTO.getPrinter());
+            if (target != null && !target.equals(key)) {
+                throw new IllegalArgumentException("合并打印的文档必须使用同一台打印机");
+            }
+            target = key;
+        }
+        // 合并批次作为整体分配到池中的同一台打印机
+        String printer = printerPools.reserve(printDTOList.get(0).getPrinter(), printDTOList.size());
+
+        List<PrintJob> jobs = new ArrayList<>(printDTOList.size());
+        List<PrintItem> items = new ArrayList<>(printDTOList.size());
+        for (PrintDTO printDTO : printDTOList) {
+            PrintJob job = new PrintJob(printDTO);
+            jobRegistry.register(job);
+            jobs.add(job);
+            items.add(new PrintItem(job, printer, null));
+        }
+        try {
+            getJobQueue(printer).submit(items);
+        } catch (RejectedExecutionException e) {
+            for (PrintJob job : jobs) {
+                jobRegistry.remove(job);
+            }
+            printerPools.getLoad(printer).release(jobs.size());
+            throw e;
+        }
+        return jobs;
+    }
+
+    /**
+     * 检查份数和页码范围,格式错误时在提交阶段拒绝
+     * @throws IllegalArgumentException 份数或页码范围无效
+     */
+    private static void validateOptions(PrintDTO printDTO) {
+        Integer copies = printDTO.getCopies();
+        if (copies != null && (copies < 1 || copies > MAX_COPIES)) {
+            throw new IllegalArgumentException("份数必须在1到" + MAX_COPIES + "之间: " + copies);
+        }
+        PageSelection.validate(printDTO.getPageRanges());
+    }
+
+    /**
+     * 打印份数,未指定时为1
+     */
+    private static int copiesOf(PrintDTO printDTO) {
+        return printDTO.getCopies() != null ? printDTO.getCopies() : 1;
+    }
+
+    /**
+     * 获取打印机的准入队列,首次使用时创建
+     * 每台打印机单个分发线程按提交顺序送入流水线,保证同一打印机的打印顺序,不同打印机互不阻塞
+     */
+    private PrintJobQueue<List<PrintItem>> getJobQueue(String printer) {
+        return jobQueues.computeIfAbsent(printer, key -> new PrintJobQueue<>("print-dispatch-" + key,
+            AppConfig.Queue.CAPACITY,
+            1,
+            PrintJobQueue.RejectPolicy.parse(AppConfig.Queue.REJECT_POLICY),
+            AppConfig.Queue.OFFER_TIMEOUT_MS,
+            items -> dispatch(key, items)));
+    }
+
+    /**
+     * 将准入队列中的作业送入流水线,该打印机的流水线已满时阻塞,背压传回准入队列;
+     * 中断或流水线已关闭时作业无法再打印,逐个标记失败并释放内容
+     */
+    private void dispatch(String printer, List<PrintItem> items) {
+        try {
+            pipeline.submit(printer, items);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failDispatch(items, new IllegalStateException("打印作业分发被中断"));
+        } catch (RejectedExecutionException e) {
+            failDispatch(items, e);
+        }
+    }
+
+    private void failDispatch(List<PrintItem> items, Exception e) {
+        for (PrintItem item : items) {
+            if (item.shard != null) {
+                printerPools.getLoad(item.printer).release(1);
+                completeShard(item.shard, e, new HeapTracker());
+            } else {
+                failItem(item, e);
+            }
+        }
+    }
+
+    /**
+     * 流水线下载阶段:获取每个文档的原始内容
+     */
+    private void fetchItems(List<PrintItem> items) {
+        for (PrintItem item : items) {
+            if (item.shard != null) {
+                continue;
+            }
+            PrintJob job = item.job;
+            job.markRunning();
+            try {
+                item.source = job.getContent() != null ? job.getContent() : fetchSource(job.getPrintDTO());
+            } catch (Exception e) {
+                failItem(item, e);
+            }
+        }
+    }
+
+    /**
+     * 流水线转换阶段:将图片和Office文档转换为PDF;可分片的池作业在此统计页数
+     */
+    private void convertItems(List<PrintItem> items) {
+        for (PrintItem item : items) {
+            if (item.failed || item.shard != null) {
+                continue;
+            }
+            try {
+                item.pdf = toPdf(item.job.getPrintDTO(), item.source);
+                if (item.pdf != item.source) {
+                    // 尽早释放下载或上传的原始内容
+                    item.source.close();
+                }
+                if (item.pool != null && items.size() == 1 && AppConfig.Printers.SHARD_PAGES > 0) {
+                    try (PdfLoader.LoadedPdf loaded = pdfLoader.load(item.pdf)) {
+                        item.selection = PageSelection.parse(item.job.getPrintDTO().getPageRanges(),
+                            loaded.getDocument().getNumberOfPages());
+                    }
+                }
+            } catch (Exception e) {
+                failItem(item, e);
+            }
+        }
+    }
+
+    /**
+     * 流水线假脱机阶段:单个作业直接打印,合并批次作为一个打印作业
+     */
+    private void spoolItems(List<PrintItem> items) {
+        List<PrintItem> ready = new ArrayList<>();
+        for (PrintItem item : items) {
+            if (!item.failed) {
+                ready.add(item);
+            }
+        }
+        if (ready.isEmpty()) {
+            return;
+        }
+        if (items.size() == 1) {
+            spoolItem(ready.get(0));
+        } else {
+            spoolMerged(ready);
+        }
+    }
+
+    private void spoolItem(PrintItem item) {
+        if (item.shard != null) {
+            spoolShard(item);
+            return;
+        }
+        if (item.selection != null && item.selection.getPageCount() > AppConfig.Printers.SHARD_PAGES
+            && spoolSharded(item)) {
+            return;
+        }
+
+        PrintJob job = item.job;
+        PrintDTO printDTO = job.getPrintDTO();
+        HeapTracker heapTracker = new HeapTracker();
+        PrinterPools.PrinterLoad load = printerPools.getLoad(item.printer);
+        load.spooling(1, 0);
+        long start = System.nanoTime();
+        Exception failure = null;
+        try {
+            javax.print.PrintService service = targetService(item.printer);
+            if (printPassthrough(service, item.pdf, printDTO)
+                || printPdfContent(item.pdf, printDTO, false, heapTracker, service, load)) {
+                printQueueModel.addPrintTask(printDTO);
+            }
+        } catch (Exception e) {
+            handlePrintError(printDTO, e);
+            failure = e;
+        } finally {
+            if (failure == null) {
+                cacheForReprint(job, item.pdf);
+            }
+            // 先释放内容再更新状态,等待方看到结束状态时临时文件已清理
+            item.release();
+        }
+
+        load.finished(1, System.nanoTime() - start, failure == null);
+
+        recordPeakHeap(job, heapTracker);
+        if (failure == null) {
+            job.markDone();
+        } else {
+            job.markFailed(failure.getMessage());
+        }
+    }
+
+    /**
+     * 将大文档按页拆分为连续的分片,轮流分配给当前打印机和池中其他可用成员并行打印;
+     * 分配给当前打印机(或其他成员队列已满)的分片在本线程中依次打印
+     * @return 池中没有其他可用成员时返回false,由调用方作为普通作业打印
+     */
+    private boolean spoolSharded(PrintItem item) {
+        List<String> printers = new ArrayList<>();
+        printers.add(item.printer);
+        printers.addAll(printerPools.rankAvailable(item.pool, item.printer));
+        if (printers.size() == 1) {
+            return false;
+        }
+
+        ShardGroup<PrintItem> group = new ShardGroup<>(item, item.selection, AppConfig.Printers.SHARD_PAGES);
+        item.job.startShards(group.getTotal());
+        logger.info("分片打印: {}, {} 页, {} 个分片, 打印机: {}",
+            item.job.getPrintDTO().getFileName(), item.selection.getPageCount(), group.getTotal(), printers);
+
+        List<PrintItem> local = new ArrayList<>();
+        for (Shard<PrintItem> shard : group.getShards()) {
+            String printer = printers.get(shard.getIndex() % printers.size());
+            if (!printer.equals(item.printer)) {
+                PrinterPools.PrinterLoad load = printerPools.getLoad(printer);
+                load.reserve(1);
+                try {
+                    getJobQueue(printer).submit(Collections.singletonList(new PrintItem(item, printer, shard)));
+                    continue;
+                } catch (RejectedExecutionException e) {
+                    load.release(1);
+                    logger.warn("打印机 {} 队列已满,分片 {} 改由 {} 打印", printer, shard.getLabel(), item.printer);
+                }
+            }
+            // 原作业已为当前打印机预占一个作业的负载,其余本地分片另行预占
+            if (!local.isEmpty()) {
+                printerPools.getLoad(item.printer).reserve(1);
+            }
+            local.add(new PrintItem(item, item.printer, shard));
+        }
+
+        for (PrintItem shardItem : local) {
+            spoolShard(shardItem);
+        }
+        return true;
+    }
+
+    /**
+     * 打印一个分片:只把分片的页码加入Book,可选在前面加一页分片标识
+     */
+    private void spoolShard(PrintItem item) {
+        Shard<PrintItem> shard = item.shard;
+        PrintDTO printDTO = item.job.getPrintDTO();
+        PrinterPools.PrinterLoad load = printerPools.getLoad(item.printer);
+        load.spooling(1, shard.getPages().getPageCount());
+        HeapTracker heapTracker = new HeapTracker();
+        long start = System.nanoTime();
+        Exception failure = null;
+
+        List<Closeable> resources = new ArrayList<>();
+        try (PdfLoader.LoadedPdf loaded = pdfLoader.load(item.pdf)) {
+            heapTracker.sample();
+            Printable printable = createPrintable(loaded.getDocument(), item.pdf, shard.getPages(), resources);
+            PageFormat pageFormat = createPageFormat(printDTO);
+
+            Book book = new Book();
+            if (AppConfig.Printers.SHARD_BANNER) {
+                book.append(new ShardBanner(shard, printDTO, item.printer, item.job.getId()), pageFormat);
+            }
+            appendPages(book, printable, pageFormat, shard.getPages(), heapTracker);
+
+            PrinterJob printerJob = createPrinterJob(targetService(item.printer));
+            printerJob.setJobName(StringUtils.defaultString(printDTO.getFileName(), "PrintBridge") + " " + shard.getLabel());
+            printerJob.setCopies(copiesOf(printDTO));
+            printerJob.setPageable(book);
+            print(printerJob, book.getNumberOfPages());
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            closeQuietly(resources);
+        }
+
+        load.finished(1, System.nanoTime() - start, failure == null);
+        completeShard(shard, failure, heapTracker);
+    }
+
+    /**
+     * 分片结束,全部分片结束后释放文档内容并更新原作业状态,任一分片失败则作业失败
+     */
+    private void completeShard(Shard<PrintItem> shard, Exception failure, HeapTracker heapTracker) {
+        ShardGroup<PrintItem> group = shard.getGroup();
+        PrintItem item = group.getOwner();
+        PrintJob job = item.job;
+        if (failure != null) {
+            if (group.fail(shard, failure.getMessage())) {
+                handlePrintError(job.getPrintDTO(), failure);
+            } else {
+                logger.error("分片打印失败: {} {} - {}", job.getPrintDTO().getFileName(), shard.getLabel(), failure.getMessage());
+            }
+        }
+        job.shardDone();
+        if (!group.finish(heapTracker.getPeak())) {
+            return;
+        }
+
+        String error = group.getFailure();
+        if (error == null) {
+            cacheForReprint(job, item.pdf);
+        }
+        item.release();
+        long peak = group.getPeakHeap();
+        job.recordPeakHeap(peak);
+        maxJobPeakHeap.accumulateAndGet(peak, Math::max);
+        if (error == null) {
+            printQueueModel.addPrintTask(job.getPrintDTO());
+            job.markDone();
+        } else {
+            job.markFailed(error);
+        }
+    }
+
+    /**
+     * 打印机接受PDF且已启用直通时直接发送PDF字节
+     * @return 已发送返回true,否则由调用方使用Java2D打印
+     */
+    private boolean printPassthrough(javax.print.PrintService service, DocumentContent pdf, PrintDTO printDTO) {
+        // 页码范围需要按页构建Book,不使用直通
+        if (!pdfPassthrough.isConfigured() || StringUtils.isNotBlank(printDTO.getPageRanges())) {
+            return false;
+        }
+        if (service == null) {
+            service = printerRegistry.getDefaultService();
+        }
+        if (!pdfPassthrough.print(service, pdf, printDTO, copiesOf(printDTO))) {
+            return false;
+        }
+        recordFirstPrint();
+        return true;
+    }
+
+    /**
+     * 获取队列键对应的打印服务,默认打印机取自注册表,避免PrinterJob再次查找
+     * @return 打印服务,没有默认打印机时返回null(由PrinterJob选择)
+     * @throws IllegalStateException 指定的打印机已不可用
+     */
+    private javax.print.PrintService targetService(String printer) {
+        if (PrinterResolver.DEFAULT.equals(printer)) {
+            return printerRegistry.getDefaultService();
+        }
+        javax.print.PrintService service = printerResolver.lookup(printer);
+        if (service == null) {
+            throw new IllegalStateException("打印机不可用: " + printer);
+        }
+        return service;
+    }
+
+    /**
+     * 合并打印:按各自的页面方向、页码范围和份数加入同一个Book,一次提交打印;
+     * 加载失败的文档单独标记失败,不影响其他文档
+     */
+    private void spoolMerged(List<PrintItem> items) {
+        List<PrintItem> included = new ArrayList<>();
+        List<PdfLoader.LoadedPdf> documents = new ArrayList<>();
+        List<Closeable> resources = new ArrayList<>();
+        Book book = new Book();
+        HeapTracker heapTracker = new HeapTracker();
+        PrinterPools.PrinterLoad load = printerPools.getLoad(items.get(0).printer);
+        long start = System.nanoTime();
+        Exception failure = null;
+
+        try {
+            for (PrintItem item : items) {
+                PrintDTO printDTO = item.job.getPrintDTO();
+                try {
+                    PdfLoader.LoadedPdf loaded = pdfLoader.load(item.pdf);
+                    documents.add(loaded);
+                    heapTracker.sample();
+
+                    PDDocument document = loaded.getDocument();
+                    PageSelection selection = PageSelection.parse(printDTO.getPageRanges(), document.getNumberOfPages());
+                    Printable printable = createPrintable(document, item.pdf, selection, resources);
+                    PageFormat pageFormat = createPageFormat(printDTO);
+                    // 各文档份数不同,在同一个Book中重复该文档的页面
+                    for (int copy = 0; copy < copiesOf(printDTO); copy++) {
+                        appendPages(book, printable, pageFormat, selection, heapTracker);
+                    }
+                    included.add(item);
+                } catch (Exception e) {
+                    recordPeakHeap(item.job, heapTracker);
+                    failItem(item, e);
+                }
+            }
+
+            if (!included.isEmpty()) {
+                logger.info("合并打印: {} 个文档, {} 页", included.size(), book.getNumberOfPages());
+                load.spooling(included.size(), book.getNumberOfPages());
+                PrinterJob printerJob = createPrinterJob(targetService(items.get(0).printer));
+                printerJob.setJobName("PrintBridge - " + included.size() + " documents");
+                printerJob.setPageable(book);
+                print(printerJob, book.getNumberOfPages());
+            }
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            closeQuietly(resources);
+            for (PdfLoader.LoadedPdf document : documents) {
+                closeQuietly(document);
+            }
+            for (PrintItem item : items) {
+                if (failure == null && included.contains(item)) {
+                    cacheForReprint(item.job, item.pdf);
+                }
+                item.release();
+            }
+        }
+
+        if (!included.isEmpty()) {
+            load.finished(included.size(), System.nanoTime() - start, failure == null);
+        }
+
+        // 合并批次共用一个打印作业,各文档记录整批的堆峰值
+        for (PrintItem item : included) {
+            PrintJob job = item.job;
+            recordPeakHeap(job, heapTracker);
+            if (failure == null) {
+                printQueueModel.addPrintTask(job.getPrintDTO());
+                job.markDone();
+            } else {
+                handlePrintError(job.getPrintDTO(), failure);
+                job.markFailed(failure.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 单个文档失败:释放内容后标记失败,不影响同批次的其他文档
+     */
+    private void failItem(PrintItem item, Exception e) {
+        handlePrintError(item.job.getPrintDTO(), e);
+        printerPools.getLoad(item.printer).release(1);
+        item.failed = true;
+        item.release();
+        item.job.markFailed(e.getMessage());
+    }
+
+    /**
+     * 保存作业打印成功的PDF内容供重新打印;重新打印的作业引用原作业已缓存的内容
+     */
+    private void cacheForReprint(PrintJob job, DocumentContent pdf) {
+        PrintDTO printDTO = job.getPrintDTO();
+        if (job.getReprintOf() != null && reprintCache.alias(job.getId(), job.getReprintOf(), printDTO)) {
+            printDTO.setJobId(job.getId());
+            return;
+        }
+        cacheForReprint(job.getId(), printDTO, pdf);
+    }
+
+    /**
+     * 保存打印成功的PDF内容供重新打印,并记录在打印参数上供打印历史查找;保存失败不影响作业结果
+     */
+    private void cacheForReprint(String jobId, PrintDTO printDTO, DocumentContent pdf) {
+        if (pdf == null || !reprintCache.isEnabled()) {
+            return;
+        }
+        try {
+            reprintCache.put(jobId, printDTO, pdf);
+            printDTO.setJobId(jobId);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("保存重新打印缓存失败: {} - {}", printDTO.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 记录作业的堆峰值
+     */
+    private void recordPeakHeap(PrintJob job, HeapTracker heapTracker) {
+        long peak = heapTracker.getPeak();
+        job.recordPeakHeap(peak);
+        maxJobPeakHeap.accumulateAndGet(peak, Math::max);
+    }
+
+    private void closeQuietly(PdfLoader.LoadedPdf document) {
+        try {
+            document.close();
+        } catch (Exception e) {
+            logger.warn("关闭PDF文档失败: {}", e.getMessage());
+        }
+    }
+
     /**
      * 打印文档（带对话框）
      */
     public void printWithDialog(List<PrintDTO> printDTOList) {
         for (PrintDTO printDTO : printDTOList) {
             try {
-                if (printDocument(printDTO, true)) {
+                if (printDocument(printDTO, null, true, new HeapTracker())) {
                     // 打印成功，可以添加到历史记录
                     printQueueModel.addPrintTask(printDTO);
                 }
@@ -110,7 +774,7 @@ public class PrintService {
     public void printWithoutDialog(List<PrintDTO> printDTOList) {
         for (PrintDTO printDTO : printDTOList) {
             try {
-                if (printDocument(printDTO, false)) {
+                if (printDocument(printDTO, null, false, new HeapTracker())) {
                     // 打印成功，添加到队列
                     printQueueModel.addPrintTask(printDTO);
                 }
@@ -122,128 +786,319 @@ public class PrintService {
 
     /**
      * 打印单个文档(支持多种格式)
+     * 打印历史中的文档优先使用重新打印缓存中的PDF,跳过下载和转换
+     * @param content 已上传的文档内容,为null时从fileUrl下载
+     * @param heapTracker 记录打印过程中的堆峰值
+     */
+    private boolean printDocument(PrintDTO printDTO, DocumentContent content, boolean showDialog,
+                                  HeapTracker heapTracker) throws Exception {
+        // 与提交作业相同,打印机池按工作量选择成员
+        String printer = printerPools.reserve(printDTO.getPrinter(), 1);
+        try {
+            javax.print.PrintService service = targetService(printer);
+            DocumentContent cached = content == null && reprintCache.isEnabled()
+                ? reprintCache.lease(printDTO.getJobId()) : null;
+            if (cached != null) {
+                logger.info("重新打印: {}, 使用缓存的PDF", printDTO.getFileName());
+            }
+            try (DocumentContent source = cached != null ? cached : content != null ? content : fetchSource(printDTO);
+                 DocumentContent pdf = toPdf(printDTO, source)) {
+                boolean printed = printPdfContent(pdf, printDTO, showDialog, heapTracker, service, null);
+                if (printed && cached == null) {
+                    // 对话框打印没有作业记录,以新ID保存
+                    cacheForReprint(UUID.randomUUID().toString().replace("-", ""), printDTO, pdf);
+                }
+                return printed;
+            }
+        } finally {
+            printerPools.getLoad(printer).release(1);
+        }
+    }
+
+    /**
+     * 重新打印已完成的作业,直接使用缓存的PDF内容,跳过下载和转换
+     * @param overrides 覆盖原作业的打印机、份数和页码范围,为null时沿用原作业的设置
+     * @return 新的打印作业,原作业的内容未缓存(未打印成功、已淘汰或已过期)时返回null
+     * @throws RejectedExecutionException 队列已满
+     * @throws IllegalArgumentException 打印机不存在,或份数、页码范围无效
+     */
+    public PrintJob reprint(String jobId, PrintDTO overrides) {
+        PrintDTO original = reprintCache.getPrintDTO(jobId);
+        DocumentContent content = original != null ? reprintCache.lease(jobId) : null;
+        if (content == null) {
+            return null;
+        }
+
+        PrintDTO printDTO = new PrintDTO();
+        printDTO.setFileUrl(original.getFileUrl());
+        printDTO.setFileName(original.getFileName());
+        printDTO.setLandscape(original.isLandscape());
+        printDTO.setDpi(original.getDpi());
+        printDTO.setPrinter(original.getPrinter());
+        printDTO.setCopies(original.getCopies());
+        printDTO.setPageRanges(original.getPageRanges());
+        if (overrides != null) {
+            if (StringUtils.isNotBlank(overrides.getPrinter())) {
+                printDTO.setPrinter(overrides.getPrinter());
+            }
+            if (overrides.getCopies() != null) {
+                printDTO.setCopies(overrides.getCopies());
+            }
+            if (overrides.getPageRanges() != null) {
+                printDTO.setPageRanges(overrides.getPageRanges());
+            }
+        }
+
+        logger.info("重新打印作业: {}, 文件名: {}", jobId, printDTO.getFileName());
+        return submit(printDTO, content, jobId);
+    }
+
+    /**
+     * 按fileUrl下载文档,不支持的格式在下载前拒绝
      */
-    private boolean printDocument(PrintDTO printDTO, boolean showDialog) throws Exception {
+    private DocumentContent fetchSource(PrintDTO printDTO) throws Exception {
         String fileUrl = printDTO.getFileUrl();
         logger.info("正在打印: {}, 文件名: {}", fileUrl, printDTO.getFileName());
 
-        // 判断文件类型并转换
         String fileExtension = getFileExtension(fileUrl);
-        File pdfFile = null;
-        boolean isTemporaryFile = false;
+        if (!isSupportedFormat(fileExtension)) {
+            throw unsupportedFormat(fileExtension);
+        }
+        return documentFetcher.fetch(fileUrl, fileExtension);
+    }
 
-        try {
-            // 根据文件类型处理
-            if (isPdfFormat(fileExtension)) {
-                // PDF格式,直接打印
-                logger.info("检测到PDF格式,直接打印");
-                return printPdfFromUrl(fileUrl, printDTO, showDialog);
-                
-            } else if (imageConverter.isSupportedFormat(fileExtension)) {
-                // 图片格式,转换为PDF
-                logger.info("检测到图片格式({}),转换为PDF后打印", fileExtension);
-                pdfFile = imageConverter.convertFromUrl(fileUrl);
-                isTemporaryFile = true;
-                return printPdfFile(pdfFile, printDTO, showDialog);
-                
-            } else if (officeConverter.isSupportedFormat(fileExtension)) {
-                // Office格式,转换为PDF
-                if (!officeConverter.isAvailable()) {
-                    throw new UnsupportedOperationException(
-                        "不支持Office格式: 未检测到LibreOffice。\n" +
-                        "请安装LibreOffice以支持Word/Excel/PPT格式: https://www.libreoffice.org/"
-                    );
-                }
-                logger.info("检测到Office格式({}),转换为PDF后打印", fileExtension);
-                pdfFile = officeConverter.convertFromUrl(fileUrl);
-                isTemporaryFile = true;
-                return printPdfFile(pdfFile, printDTO, showDialog);
-                
-            } else {
+    /**
+     * 按需将文档转换为PDF
+     * @return PDF内容,PDF文档返回source本身;关闭时释放转换产生的临时文件(缓存的结果保留)
+     */
+    private DocumentContent toPdf(PrintDTO printDTO, DocumentContent source) throws Exception {
+        // 判断文件类型并转换
+        String fileExtension = source.getExtension();
+
+        // 根据文件类型处理
+        if (isPdfFormat(fileExtension)) {
+            // PDF格式,直接打印
+            logger.info("检测到PDF格式,直接打印");
+            return source;
+            
+        } else if (imageConverter.isSupportedFormat(fileExtension)) {
+            // 图片格式,转换为PDF
+            logger.info("检测到图片格式({}),转换为PDF后打印", fileExtension);
+            int dpi = printDTO.getDpi() != null ? printDTO.getDpi() : AppConfig.Image.TARGET_DPI;
+            return imageConverter.convert(source, dpi);
+            
+        } else if (officeConverter.isSupportedFormat(fileExtension)) {
+            // Office格式,转换为PDF
+            if (!officeConverter.awaitReady()) {
                 throw new UnsupportedOperationException(
-                    "不支持的文件格式: " + fileExtension + "\n" +
-                    "支持的格式: PDF, PNG, JPG, GIF, BMP" +
-                    (officeConverter.isAvailable() ? ", DOCX, XLSX, PPTX" : "")
+                    "不支持Office格式: 未检测到LibreOffice。\n" +
+                    "请安装LibreOffice以支持Word/Excel/PPT格式: https://www.libreoffice.org/"
                 );
             }
+            logger.info("检测到Office格式({}),转换为PDF后打印", fileExtension);
+            return officeConverter.convert(source);
             
-        } finally {
-            // 清理临时文件
-            if (isTemporaryFile && pdfFile != null) {
-                try {
-                    Files.deleteIfExists(pdfFile.toPath());
-                    logger.debug("临时文件已清理: {}", pdfFile.getName());
-                } catch (Exception e) {
-                    logger.warn("清理临时文件失败: {}", e.getMessage());
-                }
-            }
+        } else {
+            throw unsupportedFormat(fileExtension);
         }
     }
 
+    private UnsupportedOperationException unsupportedFormat(String fileExtension) {
+        return new UnsupportedOperationException(
+            "不支持的文件格式: " + fileExtension + "\n" +
+            "支持的格式: PDF, PNG, JPG, GIF, BMP, TIFF" +
+            (officeConverter.isAvailable() ? ", DOCX, XLSX, PPTX" : "")
+        );
+    }
+
     /**
-     * 从URL打印PDF
+     * 打印已获取的PDF内容
+     * @param load 目标打印机的负载记录,用于记录假脱机页数;对话框打印时为null
      */
-    private boolean printPdfFromUrl(String pdfUrl, PrintDTO printDTO, boolean showDialog) throws Exception {
-        URL url = new URL(pdfUrl);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        PDDocument document = PDDocument.load(connection.getInputStream());
-
-        try {
-            return executePrint(document, printDTO, showDialog);
+    private boolean printPdfContent(DocumentContent content, PrintDTO printDTO, boolean showDialog,
+                                    HeapTracker heapTracker, javax.print.PrintService service,
+                                    PrinterPools.PrinterLoad load) throws Exception {
+        List<Closeable> resources = new ArrayList<>();
+        try (PdfLoader.LoadedPdf loaded = pdfLoader.load(content)) {
+            heapTracker.sample();
+            PageSelection selection = PageSelection.parse(printDTO.getPageRanges(), loaded.getDocument().getNumberOfPages());
+            if (load != null) {
+                load.spooling(1, selection.getPageCount());
+            }
+            Printable printable = createPrintable(loaded.getDocument(), content, selection, resources);
+            return executePrint(printable, selection, printDTO, showDialog, heapTracker, service);
         } finally {
-            document.close();
+            closeQuietly(resources);
         }
     }
 
     /**
-     * 打印本地PDF文件
+     * 创建文档的Printable,启用预渲染时提前并行渲染后续选中的页面
+     * @param resources 收集需要在打印结束后关闭的资源
      */
-    private boolean printPdfFile(File pdfFile, PrintDTO printDTO, boolean showDialog) throws Exception {
-        PDDocument document = PDDocument.load(pdfFile);
+    private Printable createPrintable(PDDocument document, DocumentContent content, PageSelection selection,
+                                      List<Closeable> resources) {
+        if (renderPool == null) {
+            return new PDFPrintable(document, Scaling.SCALE_TO_FIT);
+        }
+        PreRenderingPrintable printable = new PreRenderingPrintable(document, content, pdfLoader,
+            renderPool, AppConfig.Render.DPI, AppConfig.Render.LOOKAHEAD, selection);
+        resources.add(printable);
+        return printable;
+    }
 
-        try {
-            return executePrint(document, printDTO, showDialog);
-        } finally {
-            document.close();
+    /**
+     * 将选中的页码区间加入Book,未选中的页面不会被渲染
+     */
+    static void appendPages(Book book, Printable printable, PageFormat pageFormat, PageSelection selection,
+                            HeapTracker heapTracker) {
+        for (int[] range : selection.getRanges()) {
+            // Book页码从0开始,换算为文档内从range[0]开始的页码
+            book.append(new TrackedPrintable(printable, book.getNumberOfPages() - range[0], heapTracker),
+                pageFormat, range[1] - range[0]);
         }
     }
 
     /**
-     * 执行打印操作
+     * 提交打印并记录打印速度
      */
-    private boolean executePrint(PDDocument document, PrintDTO printDTO, boolean showDialog) throws Exception {
-        PrinterJob job = PrinterJob.getPrinterJob();
+    private void print(PrinterJob job, int pageCount) throws PrinterException {
+        long start = System.nanoTime();
+        job.print();
+        (renderPool != null ? preRenderRate : lazyRate).record(pageCount, System.nanoTime() - start);
+        recordFirstPrint();
+    }
 
-        // 设置页面格式
+    private void closeQuietly(List<Closeable> resources) {
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                logger.warn("释放打印资源失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 根据打印参数创建页面格式
+     */
+    private PageFormat createPageFormat(PrintDTO printDTO) {
         PageFormat pageFormat = new PageFormat();
         if (printDTO.isLandscape()) {
             pageFormat.setOrientation(PageFormat.LANDSCAPE);
         }
+        return pageFormat;
+    }
+
+    /**
+     * 创建打印作业
+     * @param service 目标打印机,为null时使用默认打印机
+     */
+    private PrinterJob createPrinterJob(javax.print.PrintService service) throws PrinterException {
+        PrinterJob job = PrinterJob.getPrinterJob();
+        if (service != null) {
+            job.setPrintService(service);
+        }
+        return job;
+    }
+
+    /**
+     * 执行打印操作,份数通过打印作业属性设置,文档只渲染一遍
+     */
+    private boolean executePrint(Printable printable, PageSelection selection, PrintDTO printDTO, boolean showDialog,
+                                 HeapTracker heapTracker, javax.print.PrintService service) throws Exception {
+        PrinterJob job = createPrinterJob(service);
+
+        // 设置页面格式
+        PageFormat pageFormat = createPageFormat(printDTO);
 
         // 设置作业名称
         if (StringUtils.isNotBlank(printDTO.getFileName())) {
             job.setJobName(printDTO.getFileName());
         }
 
-        // 创建打印书籍
+        job.setCopies(copiesOf(printDTO));
+
+        // 创建打印书籍,只包含选中的页面
         Book book = new Book();
-        book.append(new PDFPrintable(document, Scaling.SCALE_TO_FIT), pageFormat, document.getNumberOfPages());
+        appendPages(book, printable, pageFormat, selection, heapTracker);
         job.setPageable(book);
+        int pageCount = book.getNumberOfPages();
 
         // 根据参数决定是否显示打印对话框
         if (showDialog) {
             boolean shouldPrint = job.printDialog();
             if (shouldPrint) {
-                job.print();
+                print(job, pageCount);
                 return true;
             }
             return false;
         } else {
-            job.print();
+            print(job, pageCount);
             return true;
         }
     }
 
+    /**
+     * 记录启动后第一次打印完成的时间
+     */
+    private void recordFirstPrint() {
+        long now = System.currentTimeMillis();
+        if (firstPrintAt.compareAndSet(0, now)) {
+            logger.info("首次打印完成,距JVM启动 {} ms", now - jvmStartTime());
+        }
+    }
+
+    private static long jvmStartTime() {
+        return ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    /**
+     * 获取启动耗时统计(均为距JVM启动的毫秒数)
+     */
+    public Map<String, Object> getStartupStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long jvmStart = jvmStartTime();
+        stats.put("jvmStartTime", jvmStart);
+        stats.put("serviceReadyMillis", serviceReadyAt - jvmStart);
+        stats.put("officeInitializing", officeConverter.isInitializing());
+        Object officeInitMillis = officeConverter.getStatistics().get("initMillis");
+        if (officeInitMillis != null) {
+            stats.put("officeInitMillis", officeInitMillis);
+        }
+        long firstPrint = firstPrintAt.get();
+        if (firstPrint > 0) {
+            stats.put("firstPrintMillis", firstPrint - jvmStart);
+        }
+        return stats;
+    }
+
+    /**
+     * 获取PDF加载统计信息
+     */
+    public Map<String, Object> getPdfStatistics() {
+        Map<String, Object> stats = pdfLoader.getStatistics();
+        stats.put("maxJobPeakHeap", maxJobPeakHeap.get());
+        return stats;
+    }
+
+    /**
+     * 获取渲染统计信息,对比按需渲染和预渲染的打印速度
+     */
+    public Map<String, Object> getRenderStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", renderPool != null ? "prerender" : "lazy");
+        if (renderPool != null) {
+            stats.put("dpi", AppConfig.Render.DPI);
+            stats.put("threads", renderPool.getParallelism());
+            stats.put("lookahead", AppConfig.Render.LOOKAHEAD);
+        }
+        stats.put("lazy", lazyRate.toMap());
+        stats.put("prerender", preRenderRate.toMap());
+        stats.put("passthrough", pdfPassthrough.getStatistics());
+        return stats;
+    }
+
     /**
      * 获取文件扩展名
      */
@@ -264,6 +1119,13 @@ public class PrintService {
         return "";
     }
 
+    /**
+     * 判断是否支持该文件格式
+     */
+    public boolean isSupportedFormat(String extension) {
+        return isPdfFormat(extension) || imageConverter.isSupportedFormat(extension) || officeConverter.isSupportedFormat(extension);
+    }
+
     /**
      * 判断是否为PDF格式
      */
@@ -297,10 +1159,10 @@ public class PrintService {
     }
 
     /**
-     * 获取可用的打印机列表
+     * 获取可用的打印机列表(取自注册表缓存)
      */
     public String[] getAvailablePrinters() {
-        javax.print.PrintService[] printServices = javax.print.PrintServiceLookup.lookupPrintServices(null, null);
+        javax.print.PrintService[] printServices = printerRegistry.getServices();
 
         String[] printerNames = new String[printServices.length];
         for (int i = 0; i < printServices.length; i++) {
@@ -314,6 +1176,17 @@ public class PrintService {
      * 关闭服务
      */
     public void shutdown() {
+        for (PrintJobQueue<?> jobQueue : jobQueues.values()) {
+            jobQueue.shutdown();
+        }
+        pipeline.shutdown();
+        printerPools.shutdown();
+        printerRegistry.shutdown();
+        reprintCache.shutdown();
+        if (renderPool != null) {
+            renderPool.shutdownNow();
+        }
+
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
@@ -325,9 +1198,272 @@ public class PrintService {
     }
     
     /**
-     * 获取Office转换器状态
+     * 获取各打印机准入队列的统计信息
+     */
+    public Map<String, Object> getQueueStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, PrintJobQueue<List<PrintItem>>> entry : jobQueues.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return stats;
+    }
+
+    /**
+     * 队列已满时建议客户端等待的秒数,取各打印机队列估算值的最大值
+     */
+    public int estimateRetryAfterSeconds() {
+        int seconds = 1;
+        for (PrintJobQueue<?> jobQueue : jobQueues.values()) {
+            seconds = Math.max(seconds, jobQueue.estimateRetryAfterSeconds());
+        }
+        return seconds;
+    }
+
+    /**
+     * 获取打印机池和各打印机的负载统计
+     */
+    public Map<String, Object> getPrinterStatistics() {
+        return printerPools.getStatistics();
+    }
+
+    /**
+     * 获取打印机池
+     */
+    public PrinterPools getPrinterPools() {
+        return printerPools;
+    }
+
+    /**
+     * 获取打印机注册表
+     */
+    public PrinterRegistry getPrinterRegistry() {
+        return printerRegistry;
+    }
+
+    /**
+     * 获取打印机解析器
+     */
+    public PrinterResolver getPrinterResolver() {
+        return printerResolver;
+    }
+
+    /**
+     * 获取打印流水线
+     */
+    public PrintPipeline<?> getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * 获取文档下载器
+     */
+    public DocumentFetcher getDocumentFetcher() {
+        return documentFetcher;
+    }
+
+    /**
+     * 获取转换结果缓存
+     * @return 缓存,未启用时返回null
+     */
+    public ConversionCache getConversionCache() {
+        return conversionCache;
+    }
+
+    /**
+     * 获取重新打印缓存
+     */
+    public ReprintCache getReprintCache() {
+        return reprintCache;
+    }
+
+    /**
+     * 获取作业索引
+     */
+    public PrintJobRegistry getJobRegistry() {
+        return jobRegistry;
+    }
+
+    /**
+     * 获取Office转换器
+     */
+    public OfficeConverter getOfficeConverter() {
+        return officeConverter;
+    }
+
+    /**
+     * 获取Office转换器状态(初始化完成前返回false)
      */
     public boolean isOfficeConverterAvailable() {
         return officeConverter != null && officeConverter.isAvailable();
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取Office转换器初始化结果,完成时以是否可用完成
+     */
+    public CompletableFuture<Boolean> getOfficeReadiness() {
+        return officeConverter.getReadiness();
+    }
+
+    /**
+     * 流水线中的单个文档,各阶段依次填充原始内容和PDF内容
+     */
+    private static final class PrintItem {
+
+        private final PrintJob job;
+        /** 目标打印机的队列键 */
+        private final String printer;
+        /** 提交时指定的打印机池,非池作业为null */
+        private final String pool;
+        /** 分片作业的页码范围,普通作业为null */
+        private final Shard<PrintItem> shard;
+        private DocumentContent source;
+        private DocumentContent pdf;
+        private boolean failed;
+        /** 选中的页码,仅在可能分片时统计 */
+        private PageSelection selection;
+
+        private PrintItem(PrintJob job, String printer, String pool) {
+            this.job = job;
+            this.printer = printer;
+            this.pool = pool;
+            this.shard = null;
+        }
+
+        /**
+         * 创建分片,与原作业共用PDF内容
+         */
+        private PrintItem(PrintItem parent, String printer, Shard<PrintItem> shard) {
+            this.job = parent.job;
+            this.printer = printer;
+            this.pool = parent.pool;
+            this.shard = shard;
+            this.pdf = parent.pdf;
+        }
+
+        /**
+         * 释放原始内容、PDF内容和上传内容(重复调用无副作用);分片共用的内容由全部分片结束后统一释放
+         */
+        private void release() {
+            if (shard != null) {
+                return;
+            }
+            if (pdf != null) {
+                pdf.close();
+            }
+            if (source != null) {
+                source.close();
+            }
+            if (job.getContent() != null) {
+                job.getContent().close();
+            }
+        }
+    }
+
+    /**
+     * 分片标识页,便于整理多台打印机的输出
+     */
+    static final class ShardBanner implements Printable {
+
+        final String[] lines;
+
+        ShardBanner(Shard<?> shard, PrintDTO printDTO, String printer, String jobId) {
+            this.lines = new String[] {
+                StringUtils.defaultString(printDTO.getFileName(), printDTO.getFileUrl()),
+                "分片 " + (shard.getIndex() + 1) + " / " + shard.getGroup().getTotal(),
+                "页码 " + (shard.getPages().getFirstPage() + 1) + " - " + (shard.getPages().getLastPage() + 1),
+                "打印机 " + printer,
+                "作业 " + jobId
+            };
+        }
+
+        @Override
+        public int print(Graphics graphics, PageFormat pageFormat, int pageIndex) {
+            if (pageIndex > 0) {
+                return NO_SUCH_PAGE;
+            }
+            Graphics2D graphics2D = (Graphics2D) graphics;
+            graphics2D.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 18));
+            int lineHeight = graphics2D.getFontMetrics().getHeight();
+            float x = (float) pageFormat.getImageableX() + 36;
+            float y = (float) pageFormat.getImageableY() + 72;
+            for (String line : lines) {
+                graphics2D.drawString(line, x, y);
+                y += lineHeight * 1.5f;
+            }
+            return PAGE_EXISTS;
+        }
+    }
+
+    /**
+     * Book按全局页码调用Printable,合并打印时需换算为各文档内的页码;每页渲染后采样堆使用
+     */
+    private static final class TrackedPrintable implements Printable {
+
+        private final Printable delegate;
+        private final int firstPage;
+        private final HeapTracker heapTracker;
+
+        private TrackedPrintable(Printable delegate, int firstPage, HeapTracker heapTracker) {
+            this.delegate = delegate;
+            this.firstPage = firstPage;
+            this.heapTracker = heapTracker;
+        }
+
+        @Override
+        public int print(Graphics graphics, PageFormat pageFormat, int pageIndex) throws PrinterException {
+            try {
+                return delegate.print(graphics, pageFormat, pageIndex - firstPage);
+            } finally {
+                heapTracker.sample();
+            }
+        }
+    }
+
+    /**
+     * 打印速度累计
+     */
+    private static final class PageRate {
+
+        private final AtomicLong pages = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        void record(int pageCount, long elapsedNanos) {
+            pages.addAndGet(pageCount);
+            nanos.addAndGet(elapsedNanos);
+        }
+
+        Map<String, Object> toMap() {
+            long totalPages = pages.get();
+            long totalNanos = nanos.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("pages", totalPages);
+            map.put("millis", totalNanos / 1000000);
+            map.put("pagesPerSecond", totalNanos > 0 ? Math.round(totalPages * 1e11 / totalNanos) / 100.0 : 0);
+            return map;
+        }
+    }
+
+    /**
+     * 堆使用采样
+     * 记录作业开始后已用堆的最大增长,其他作业并发执行时包含其占用,仅作为JVM容量规划的参考
+     */
+    static final class HeapTracker {
+
+        private final long baseline = usedHeap();
+        private long peak = baseline;
+
+        void sample() {
+            peak = Math.max(peak, usedHeap());
+        }
+
+        long getPeak() {
+            sample();
+            return peak - baseline;
+        }
+
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.magicyuan.print.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.print.attribute.standard.PrinterIsAcceptingJobs;
+import javax.print.attribute.standard.PrinterState;
+import javax.print.attribute.standard.PrinterStateReasons;
+import javax.print.attribute.standard.QueuedJobCount;
+import javax.print.attribute.standard.Severity;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 打印机池
+ * 池由多台可互换的打印机组成,提交时选择未完成工作量最小的成员;
+ * 工作量按本服务在途的页数和作业数,加上打印机报告的排队作业数(QueuedJobCount)估算,
+ * 停止、不接受作业或报告错误状态的成员被跳过;
+ * 成员状态由后台线程定期读取,选择时只使用已缓存的状态,不在提交线程上访问打印机
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrinterPools {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterPools.class);
+
+    /** 池名(小写) -> 成员名称或别名 */
+    private final Map<String, List<String>> pools = new LinkedHashMap<>();
+    /** 打印机队列键 -> 负载 */
+    private final Map<String, PrinterLoad> loads = new ConcurrentHashMap<>();
+    private final PrinterResolver printerResolver;
+    /** 刷新池成员状态,未配置池时为null */
+    private final ScheduledExecutorService stateRefresher;
+
+    /**
+     * 配置了池时立即开始后台刷新成员状态
+     * @param pools 池配置,格式为 池名=成员1|成员2,多个池以逗号分隔
+     * @param stateRefreshMillis 成员状态的刷新间隔(毫秒)
+     */
+    public PrinterPools(String pools, PrinterResolver printerResolver, long stateRefreshMillis) {
+        for (String entry : StringUtils.split(StringUtils.defaultString(pools), ',')) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            List<String> members = new ArrayList<>();
+            for (String member : StringUtils.split(entry.substring(eq + 1), '|')) {
+                if (StringUtils.isNotBlank(member)) {
+                    members.add(member.trim());
+                }
+            }
+            if (!members.isEmpty()) {
+                this.pools.put(entry.substring(0, eq).trim().toLowerCase(Locale.ROOT), members);
+            }
+        }
+        this.printerResolver = printerResolver;
+
+        if (this.pools.isEmpty()) {
+            this.stateRefresher = null;
+        } else {
+            this.stateRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "printer-pool-state");
+                thread.setDaemon(true);
+                return thread;
+            });
+            stateRefresher.scheduleWithFixedDelay(this::refreshStates, 0, Math.max(100L, stateRefreshMillis),
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 是否为已配置的池名
+     */
+    public boolean isPool(String name) {
+        return name != null && pools.containsKey(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 解析目标打印机并预占负载,打印机池按工作量选择成员
+     * @param printer 打印机名称、别名或池名,为空时使用默认打印机
+     * @return 打印机队列键
+     * @throws IllegalArgumentException 打印机不存在
+     */
+    public String reserve(String printer, int jobs) {
+        if (isPool(printer)) {
+            return select(printer, jobs);
+        }
+        String key = printerResolver.resolveKey(printer);
+        getLoad(key).reserve(jobs);
+        return key;
+    }
+
+    /**
+     * 选择池中工作量最小的可用成员,并预占jobs个作业的负载
+     * 所有成员都处于错误状态时选择工作量最小的成员,作业在该打印机上排队
+     * @return 成员的打印机队列键
+     * @throws IllegalArgumentException 池中没有存在的打印机
+     */
+    public synchronized String select(String pool, int jobs) {
+        List<Candidate> candidates = candidates(pool);
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("打印机池中没有可用的打印机: " + pool);
+        }
+        String best = null;
+        for (Candidate candidate : candidates) {
+            if (candidate.load.available) {
+                best = candidate.key;
+                break;
+            }
+        }
+        if (best == null) {
+            best = candidates.get(0).key;
+            logger.warn("打印机池 {} 的成员均处于错误状态,作业在 {} 上排队", pool, best);
+        }
+        PrinterLoad load = getLoad(best);
+        load.dispatched.addAndGet(jobs);
+        load.reserve(jobs);
+        return best;
+    }
+
+    /**
+     * 按工作量从小到大列出池中的可用成员
+     * @param exclude 不列出的打印机队列键,可为null
+     */
+    public synchronized List<String> rankAvailable(String pool, String exclude) {
+        List<String> members = new ArrayList<>();
+        for (Candidate candidate : candidates(pool)) {
+            if (candidate.load.available && !candidate.key.equals(exclude)) {
+                members.add(candidate.key);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * 按估算工作量从小到大列出池中的成员,使用缓存的状态;不存在的成员被忽略
+     */
+    private List<Candidate> candidates(String pool) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (String member : pools.get(pool.trim().toLowerCase(Locale.ROOT))) {
+            String key;
+            try {
+                key = printerResolver.resolveKey(member);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            PrinterLoad load = getLoad(key);
+            candidates.add(new Candidate(key, load, load.estimate()));
+        }
+        candidates.sort((a, b) -> Double.compare(a.estimate, b.estimate));
+        return candidates;
+    }
+
+    /**
+     * 获取池配置,池名(小写) -> 成员名称或别名
+     */
+    public Map<String, List<String>> getPools() {
+        return Collections.unmodifiableMap(pools);
+    }
+
+    /**
+     * 读取所有池成员的状态(在后台线程中执行,IPP查询可能较慢)
+     */
+    private void refreshStates() {
+        for (List<String> members : pools.values()) {
+            for (String member : members) {
+                try {
+                    String key = printerResolver.resolveKey(member);
+                    getLoad(key).refreshState(printerResolver.lookup(key));
+                } catch (IllegalArgumentException e) {
+                    // 成员打印机不存在,选择时同样被忽略
+                } catch (RuntimeException e) {
+                    logger.warn("刷新打印机池成员状态失败: {} - {}", member, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 打印机增加或能力变化后,立即在后台重新读取其状态
+     */
+    public void invalidateState(List<String> printers) {
+        if (stateRefresher == null || printers.isEmpty()) {
+            return;
+        }
+        try {
+            stateRefresher.execute(() -> {
+                for (String printer : printers) {
+                    PrinterLoad load = loads.get(printer);
+                    if (load != null) {
+                        load.refreshState(printerResolver.lookup(printer));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+        }
+    }
+
+    /**
+     * 停止后台状态刷新
+     */
+    public void shutdown() {
+        if (stateRefresher != null) {
+            stateRefresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取打印机的负载记录,首次使用时创建
+     */
+    public PrinterLoad getLoad(String printer) {
+        return loads.computeIfAbsent(printer, key -> new PrinterLoad());
+    }
+
+    /**
+     * 获取池配置和各打印机的负载、吞吐统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pools", new LinkedHashMap<>(pools));
+        Map<String, Object> printers = new LinkedHashMap<>();
+        for (Map.Entry<String, PrinterLoad> entry : loads.entrySet()) {
+            printers.put(entry.getKey(), entry.getValue().toMap());
+        }
+        stats.put("printers", printers);
+        return stats;
+    }
+
+    private static final class Candidate {
+
+        private final String key;
+        private final PrinterLoad load;
+        private final double estimate;
+
+        private Candidate(String key, PrinterLoad load, double estimate) {
+            this.key = key;
+            this.load = load;
+            this.estimate = estimate;
+        }
+    }
+
+    /**
+     * 单台打印机的负载和吞吐
+     * 同一打印机只有一个假脱机线程,正在假脱机的作业数和页数只由该线程更新
+     */
+    public static final class PrinterLoad {
+
+        /** 已提交、尚未结束的作业数 */
+        private final AtomicInteger outstandingJobs = new AtomicInteger();
+        /** 由池选择分配到本打印机的作业数 */
+        private final AtomicLong dispatched = new AtomicLong();
+        private final AtomicLong completedJobs = new AtomicLong();
+        private final AtomicLong completedPages = new AtomicLong();
+        private final AtomicLong failedJobs = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private volatile int spoolingJobs;
+        private volatile int spoolingPages;
+
+        /** 以下字段为打印机报告的状态,由后台线程刷新 */
+        private volatile boolean available = true;
+        private volatile String state = "unknown";
+        private volatile int queuedJobs;
+
+        /**
+         * 作业已提交到本打印机
+         */
+        public void reserve(int jobs) {
+            outstandingJobs.addAndGet(jobs);
+        }
+
+        /**
+         * 作业在假脱机前结束(下载、转换失败或被拒绝)
+         */
+        public void release(int jobs) {
+            outstandingJobs.addAndGet(-jobs);
+        }
+
+        /**
+         * 开始假脱机,页数未知(直通打印)时为0
+         */
+        public void spooling(int jobs, int pages) {
+            spoolingJobs = jobs;
+            spoolingPages = pages;
+        }
+
+        /**
+         * 假脱机结束
+         */
+        public void finished(int jobs, long elapsedNanos, boolean success) {
+            if (success) {
+                completedJobs.addAndGet(jobs);
+                completedPages.addAndGet(spoolingPages);
+            } else {
+                failedJobs.addAndGet(jobs);
+            }
+            busyNanos.addAndGet(elapsedNanos);
+            spoolingJobs = 0;
+            spoolingPages = 0;
+            outstandingJobs.addAndGet(-jobs);
+        }
+
+        /**
+         * 估算未完成的页数:正在假脱机的页数,加上等待中的作业和打印机排队作业按平均页数折算
+         */
+        double estimate() {
+            int waiting = Math.max(0, outstandingJobs.get() - spoolingJobs);
+            return spoolingPages + (waiting + queuedJobs) * averagePages();
+        }
+
+        private double averagePages() {
+            long jobs = completedJobs.get();
+            return jobs > 0 ? Math.max(1.0, (double) completedPages.get() / jobs) : 1.0;
+        }
+
+        /**
+         * 读取打印机报告的状态,读取失败时视为可用
+         */
+        void refreshState(javax.print.PrintService service) {
+            if (service == null) {
+                available = false;
+                state = "missing";
+                queuedJobs = 0;
+                return;
+            }
+            try {
+                PrinterState printerState = service.getAttribute(PrinterState.class);
+                PrinterStateReasons reasons = service.getAttribute(PrinterStateReasons.class);
+                PrinterIsAcceptingJobs accepting = service.getAttribute(PrinterIsAcceptingJobs.class);
+                QueuedJobCount queued = service.getAttribute(QueuedJobCount.class);
+
+                boolean error = reasons != null && !reasons.printerStateReasonSet(Severity.ERROR).isEmpty();
+                available = printerState != PrinterState.STOPPED
+                    && accepting != PrinterIsAcceptingJobs.NOT_ACCEPTING_JOBS
+                    && !error;
+                state = error ? "error" : printerState != null ? printerState.toString() : "unknown";
+                queuedJobs = queued != null ? queued.getValue() : 0;
+            } catch (RuntimeException e) {
+                logger.debug("读取打印机状态失败: {} - {}", service.getName(), e.getMessage());
+                available = true;
+                state = "unknown";
+                queuedJobs = 0;
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long nanos = busyNanos.get();
+            long pages = completedPages.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("state", state);
+            map.put("available", available);
+            map.put("queuedJobs", queuedJobs);
+            map.put("outstandingJobs", outstandingJobs.get());
+            map.put("spoolingPages", spoolingPages);
+            map.put("estimatedPages", Math.round(estimate()));
+            map.put("dispatched", dispatched.get());
+            map.put("completedJobs", completedJobs.get());
+            map.put("completedPages", pages);
+            map.put("failedJobs", failedJobs.get());
+            map.put("busyMillis", nanos / 1000000);
+            map.put("pagesPerMinute", nanos > 0 ? Math.round(pages * 6e12 / nanos) / 100.0 : 0);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.magicyuan.print.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.print.DocFlavor;
+import javax.print.PrintServiceLookup;
+import javax.print.attribute.standard.Chromaticity;
+import javax.print.attribute.standard.ColorSupported;
+import javax.print.attribute.standard.Media;
+import javax.print.attribute.standard.MediaSizeName;
+import javax.print.attribute.standard.Sides;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 打印机注册表
+ * 在后台线程中定期查找系统打印机并缓存名称和能力(文档格式、纸张、双面、彩色),
+ * 查找打印机(CUPS下可能耗时数百毫秒)不再发生在请求或打印线程中;打印机增减或能力变化时通知监听器
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrinterRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrinterRegistry.class);
+
+    private final Lookup lookup;
+    private final ScheduledExecutorService scheduler;
+    private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+    /** 首次查找完成(无论成功与否)时完成 */
+    private final CompletableFuture<Void> discovered = new CompletableFuture<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new javax.print.PrintService[0], null,
+        Collections.<String, Map<String, Object>>emptyMap(), 0);
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastRefreshMillis;
+
+    /**
+     * 创建后立即开始后台查找
+     * @param refreshMillis 定期刷新间隔(毫秒)
+     */
+    public PrinterRegistry(long refreshMillis) {
+        this(refreshMillis, Lookup.SYSTEM);
+    }
+
+    /**
+     * @param lookup 打印机查找方式
+     */
+    PrinterRegistry(long refreshMillis, Lookup lookup) {
+        this.lookup = lookup;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "printer-discovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, Math.max(1000L, refreshMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即刷新打印机列表
+     * @return 刷新完成时完成的Future
+     */
+    public CompletableFuture<Void> refresh() {
+        return CompletableFuture.runAsync(this::refreshQuietly, scheduler);
+    }
+
+    /**
+     * 添加打印机变化监听器,在查找线程中回调
+     */
+    public void addListener(Consumer<Change> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 获取系统打印机列表,首次查找完成前等待
+     */
+    public javax.print.PrintService[] getServices() {
+        return awaitSnapshot().services;
+    }
+
+    /**
+     * 获取默认打印机,首次查找完成前等待
+     * @return 默认打印机,没有时返回null
+     */
+    public javax.print.PrintService getDefaultService() {
+        return awaitSnapshot().defaultService;
+    }
+
+    /**
+     * 获取各打印机的名称和能力,首次查找完成前等待
+     */
+    public List<Map<String, Object>> getPrinters() {
+        return new ArrayList<>(awaitSnapshot().printers.values());
+    }
+
+    /**
+     * 最近一次查找完成的时间,尚未完成时为0
+     */
+    public long getRefreshedAt() {
+        return snapshot.refreshedAt;
+    }
+
+    private Snapshot awaitSnapshot() {
+        discovered.join();
+        return snapshot;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshNow();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("查找打印机失败: {}", e.getMessage(), e);
+        } finally {
+            discovered.complete(null);
+        }
+    }
+
+    /**
+     * 查找打印机并读取能力,与上次结果比较后通知监听器
+     */
+    private void refreshNow() {
+        long start = System.currentTimeMillis();
+        javax.print.PrintService[] services = lookup.services();
+        javax.print.PrintService defaultService = lookup.defaultService();
+
+        Map<String, Map<String, Object>> printers = new LinkedHashMap<>();
+        for (javax.print.PrintService service : services) {
+            boolean isDefault = defaultService != null && defaultService.getName().equals(service.getName());
+            printers.put(service.getName(), describe(service, isDefault));
+        }
+
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(services, defaultService, printers, System.currentTimeMillis());
+        lastRefreshMillis = System.currentTimeMillis() - start;
+        refreshes.incrementAndGet();
+
+        Change change = new Change(previous.printers, printers);
+        if (!change.isEmpty() && refreshes.get() > 1) {
+            logger.info("打印机变化: 新增{}, 移除{}, 变更{}", change.added, change.removed, change.changed);
+        }
+        if (!change.isEmpty()) {
+            for (Consumer<Change> listener : listeners) {
+                try {
+                    listener.accept(change);
+                } catch (RuntimeException e) {
+                    logger.warn("打印机变化通知失败: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取打印机能力,单项读取失败时忽略该项
+     */
+    private static Map<String, Object> describe(javax.print.PrintService service, boolean isDefault) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("name", service.getName());
+        info.put("default", isDefault);
+
+        TreeSet<String> flavors = new TreeSet<>();
+        List<String> media = new ArrayList<>();
+        boolean duplex = false;
+        boolean color = false;
+        try {
+            for (DocFlavor flavor : service.getSupportedDocFlavors()) {
+                flavors.add(flavor.getMediaType() + "/" + flavor.getMediaSubtype());
+            }
+
+            Object mediaValues = service.getSupportedAttributeValues(Media.class, null, null);
+            if (mediaValues instanceof Media[]) {
+                for (Media value : (Media[]) mediaValues) {
+                    if (value instanceof MediaSizeName) {
+                        media.add(value.toString());
+                    }
+                }
+            }
+
+            Object sides = service.getSupportedAttributeValues(Sides.class, null, null);
+            if (sides instanceof Sides[]) {
+                for (Sides value : (Sides[]) sides) {
+                    duplex |= value == Sides.DUPLEX || value == Sides.TWO_SIDED_SHORT_EDGE;
+                }
+            }
+
+            ColorSupported colorSupported = service.getAttribute(ColorSupported.class);
+            if (colorSupported != null) {
+                color = colorSupported == ColorSupported.SUPPORTED;
+            } else {
+                Object chromaticity = service.getSupportedAttributeValues(Chromaticity.class, null, null);
+                if (chromaticity instanceof Chromaticity[]) {
+                    for (Chromaticity value : (Chromaticity[]) chromaticity) {
+                        color |= value == Chromaticity.COLOR;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.debug("读取打印机能力失败: {} - {}", service.getName(), e.getMessage());
+        }
+
+        info.put("pdf", PdfPassthrough.findFlavor(service) != null);
+        info.put("duplex", duplex);
+        info.put("color", color);
+        info.put("flavors", new ArrayList<>(flavors));
+        info.put("media", media);
+        return info;
+    }
+
+    /**
+     * 获取查找统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("printers", current.printers.size());
+        stats.put("default", current.defaultService != null ? current.defaultService.getName() : null);
+        stats.put("refreshes", refreshes.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        stats.put("refreshedAt", current.refreshedAt);
+        return stats;
+    }
+
+    /**
+     * 停止后台查找
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 查找系统打印机
+     */
+    interface Lookup {
+
+        Lookup SYSTEM = new Lookup() {
+
+            @Override
+            public javax.print.PrintService[] services() {
+                return PrintServiceLookup.lookupPrintServices(null, null);
+            }
+
+            @Override
+            public javax.print.PrintService defaultService() {
+                return PrintServiceLookup.lookupDefaultPrintService();
+            }
+        };
+
+        javax.print.PrintService[] services();
+
+        /**
+         * @return 默认打印机,没有时返回null
+         */
+        javax.print.PrintService defaultService();
+    }
+
+    /**
+     * 一次查找的结果,整体替换
+     */
+    private static final class Snapshot {
+
+        private final javax.print.PrintService[] services;
+        private final javax.print.PrintService defaultService;
+        /** 打印机名称 -> 能力 */
+        private final Map<String, Map<String, Object>> printers;
+        private final long refreshedAt;
+
+        private Snapshot(javax.print.PrintService[] services, javax.print.PrintService defaultService,
+                         Map<String, Map<String, Object>> printers, long refreshedAt) {
+            this.services = services;
+            this.defaultService = defaultService;
+            this.printers = printers;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+
+    /**
+     * 打印机变化事件
+     */
+    public static final class Change {
+
+        private final List<String> added = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+        /** 能力或默认打印机标记发生变化的打印机 */
+        private final List<String> changed = new ArrayList<>();
+
+        private Change(Map<String, Map<String, Object>> before, Map<String, Map<String, Object>> after) {
+            for (Map.Entry<String, Map<String, Object>> entry : after.entrySet()) {
+                Map<String, Object> previous = before.get(entry.getKey());
+                if (previous == null) {
+                    added.add(entry.getKey());
+                } else if (!previous.equals(entry.getValue())) {
+                    changed.add(entry.getKey());
+                }
+            }
+            for (String name : before.keySet()) {
+                if (!after.containsKey(name)) {
+                    removed.add(name);
+                }
+            }
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+
+        public List<String> getAdded() {
+            return added;
+        }
+
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        public List<String> getChanged() {
+            return changed;
+        }
+    }
+}
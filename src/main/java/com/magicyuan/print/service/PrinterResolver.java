@@ -0,0 +1,88 @@
+package com.magicyuan.print.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * 打印机解析
+ * 将请求中的打印机名称或别名解析为系统打印机,系统打印机列表取自打印机注册表
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrinterResolver {
+
+    /** 未指定打印机时使用的队列键 */
+    public static final String DEFAULT = "default";
+
+    /** 别名(小写) -> 打印机名称 */
+    private final Map<String, String> aliases = new LinkedHashMap<>();
+    private final PrinterRegistry printerRegistry;
+
+    /**
+     * @param aliases 别名配置,格式为 别名=打印机名称,多个以逗号分隔
+     */
+    public PrinterResolver(String aliases, PrinterRegistry printerRegistry) {
+        for (String entry : StringUtils.split(StringUtils.defaultString(aliases), ',')) {
+            int eq = entry.indexOf('=');
+            if (eq > 0 && eq < entry.length() - 1) {
+                this.aliases.put(entry.substring(0, eq).trim().toLowerCase(Locale.ROOT), entry.substring(eq + 1).trim());
+            }
+        }
+        this.printerRegistry = printerRegistry;
+    }
+
+    /**
+     * 解析打印机对应的队列键
+     * @param printer 打印机名称或别名,为空时使用默认打印机
+     * @return 未指定时返回DEFAULT,否则返回系统打印机名称
+     * @throws IllegalArgumentException 打印机不存在
+     */
+    public String resolveKey(String printer) {
+        if (StringUtils.isBlank(printer)) {
+            return DEFAULT;
+        }
+        String name = physicalName(printer);
+        javax.print.PrintService service = find(name);
+        if (service == null) {
+            throw new IllegalArgumentException("打印机不存在: " + printer);
+        }
+        return service.getName();
+    }
+
+    /**
+     * 查找队列键对应的打印服务
+     * @return 打印服务,DEFAULT返回默认打印机;打印机已不存在时返回null
+     */
+    public javax.print.PrintService lookup(String key) {
+        if (DEFAULT.equals(key)) {
+            return printerRegistry.getDefaultService();
+        }
+        return find(key);
+    }
+
+    private String physicalName(String printer) {
+        String name = aliases.get(printer.trim().toLowerCase(Locale.ROOT));
+        return name != null ? name : printer.trim();
+    }
+
+    private javax.print.PrintService find(String name) {
+        for (javax.print.PrintService service : printerRegistry.getServices()) {
+            if (service.getName().equalsIgnoreCase(name)) {
+                return service;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取别名配置
+     */
+    public Map<String, String> getAliases() {
+        return Collections.unmodifiableMap(aliases);
+    }
+}
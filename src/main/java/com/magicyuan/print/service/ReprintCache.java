@@ -0,0 +1,379 @@
+package com.magicyuan.print.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.dto.PrintDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 重新打印缓存
+ * 按作业ID保存最近打印成功的PDF内容,重新打印时跳过下载和转换;
+ * 内存中的内容直接共享字节数组(受堆预算限制),文件内容以硬链接或副本保存为临时文件;
+ * 重新打印产生的作业与原作业共享同一份内容,字节数只计一次;
+ * 按字节总量淘汰最久未使用的条目,超过保留时间的条目由后台线程定期清理;
+ * 正在重新打印的内容被引用计数保护,淘汰时延迟到释放后再删除文件
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class ReprintCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReprintCache.class);
+
+    private final long maxBytes;
+    private final long memoryBytes;
+    private final long ttlMillis;
+
+    /** 按访问顺序排列,受this锁保护 */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** 各条目共享内容的字节数,每份内容只计一次 */
+    private long totalBytes;
+    private long heapBytes;
+
+    /** 定期清理过期条目,未启用或不过期时为null */
+    private final ScheduledExecutorService sweeper;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * 启用且设置了保留时间时,立即开始后台清理
+     * @param maxBytes 缓存内容的总字节数上限,小于等于0时不启用
+     * @param memoryBytes 保存在堆内的内容字节数上限,超出时写入临时文件
+     * @param ttlMillis 条目的保留时间(毫秒),小于等于0表示不过期
+     */
+    public ReprintCache(long maxBytes, long memoryBytes, long ttlMillis) {
+        this.maxBytes = maxBytes;
+        this.memoryBytes = Math.max(0, memoryBytes);
+        this.ttlMillis = ttlMillis;
+
+        if (maxBytes > 0 && ttlMillis > 0) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "reprint-cache-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1000, ttlMillis / 4);
+            sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * 保存作业的PDF内容,调用方随后可以照常关闭pdf;超过总上限的文档不缓存
+     * @param printDTO 作业的打印参数,重新打印时作为默认值
+     */
+    public void put(String jobId, PrintDTO printDTO, DocumentContent pdf) throws IOException {
+        long size = pdf.length();
+        if (!isEnabled() || size > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (entries.containsKey(jobId)) {
+                return;
+            }
+        }
+
+        Content content;
+        if (pdf.isInMemory() && size <= memoryBytes) {
+            byte[] data = pdf.getData();
+            // 缓冲区可能大于内容,只保留内容部分,堆占用与计数一致
+            if (data.length > size) {
+                data = Arrays.copyOf(data, (int) size);
+            }
+            content = new Content(data, null, size);
+        } else {
+            content = new Content(null, copyToScratch(pdf), size);
+        }
+
+        synchronized (this) {
+            totalBytes += size;
+            if (content.data != null) {
+                heapBytes += size;
+            }
+            add(new Entry(jobId, printDTO, content));
+            expire();
+            trim();
+        }
+    }
+
+    /**
+     * 重新打印成功后,以新作业ID引用原作业缓存的内容,不再复制或重复计数
+     * @param sourceJobId 被重新打印的作业ID
+     * @param printDTO 新作业的打印参数
+     * @return 是否已关联,原作业的条目已淘汰或过期时返回false,调用方可改为put
+     */
+    public synchronized boolean alias(String jobId, String sourceJobId, PrintDTO printDTO) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Entry source = entries.get(sourceJobId);
+        if (source == null || isExpired(source, System.currentTimeMillis())) {
+            return false;
+        }
+        if (!entries.containsKey(jobId)) {
+            add(new Entry(jobId, printDTO, source.content));
+        }
+        return true;
+    }
+
+    private void add(Entry entry) {
+        entry.content.refs++;
+        Entry previous = entries.put(entry.jobId, entry);
+        if (previous != null) {
+            discard(previous);
+        }
+    }
+
+    /**
+     * 将内容保存为临时文件:文件内容优先创建硬链接,原文件随后被删除或淘汰也不受影响;无法链接时复制
+     */
+    private static File copyToScratch(DocumentContent pdf) throws IOException {
+        Path scratch = DocumentContent.createTempFile("printbridge_reprint_", ".pdf");
+        try {
+            if (pdf.isInMemory()) {
+                try (OutputStream out = Files.newOutputStream(scratch)) {
+                    out.write(pdf.getData(), 0, (int) pdf.length());
+                }
+                return scratch.toFile();
+            }
+            Path source = pdf.toFile().toPath();
+            Files.delete(scratch);
+            try {
+                Files.createLink(scratch, source);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(source, scratch, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return scratch.toFile();
+        } catch (IOException e) {
+            deleteQuietly(scratch.toFile());
+            throw e;
+        }
+    }
+
+    /**
+     * 取出作业的PDF内容用于重新打印,关闭返回的内容前条目的文件不会被删除
+     * @return PDF内容,未缓存、已淘汰或已过期时返回null
+     */
+    public synchronized DocumentContent lease(String jobId) {
+        Entry entry = jobId == null ? null : entries.get(jobId);
+        if (entry != null && isExpired(entry, System.currentTimeMillis())) {
+            remove(entry);
+            expiredCount.incrementAndGet();
+            entry = null;
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return toContent(entry);
+    }
+
+    private DocumentContent toContent(Entry entry) {
+        Content content = entry.content;
+        if (content.data != null) {
+            // 字节数组不再被修改,淘汰后仍可安全读取
+            return DocumentContent.ofBytes(content.data, (int) content.size, "pdf");
+        }
+        content.pins++;
+        return DocumentContent.ofFile(content.file, "pdf", () -> release(content));
+    }
+
+    /**
+     * 获取作业缓存时的打印参数
+     * @return 打印参数,未缓存时返回null
+     */
+    public synchronized PrintDTO getPrintDTO(String jobId) {
+        Entry entry = jobId == null ? null : entries.get(jobId);
+        return entry != null ? entry.printDTO : null;
+    }
+
+    private synchronized void release(Content content) {
+        content.pins--;
+        if (content.removed && content.pins == 0) {
+            deleteQuietly(content.file);
+        }
+    }
+
+    /**
+     * 后台清理过期条目
+     */
+    private synchronized void sweep() {
+        expire();
+    }
+
+    /**
+     * 清理超过保留时间的条目
+     */
+    private void expire() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (isExpired(entry, now)) {
+                iterator.remove();
+                discard(entry);
+                expiredCount.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.cachedAt > ttlMillis;
+    }
+
+    /**
+     * 按LRU顺序淘汰,直到总字节数和堆内字节数都不超过上限
+     */
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((totalBytes > maxBytes || heapBytes > memoryBytes) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (totalBytes <= maxBytes && entry.content.data == null) {
+                // 只是堆内字节超限,保留文件条目
+                continue;
+            }
+            iterator.remove();
+            discard(entry);
+            evictionCount.incrementAndGet();
+            logger.debug("重新打印缓存淘汰: {}", entry.jobId);
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.jobId);
+        discard(entry);
+    }
+
+    /**
+     * 条目移除后,最后一个引用内容的条目释放内容
+     */
+    private void discard(Entry entry) {
+        Content content = entry.content;
+        if (--content.refs > 0) {
+            return;
+        }
+        totalBytes -= content.size;
+        if (content.data != null) {
+            heapBytes -= content.size;
+        }
+        content.removed = true;
+        if (content.pins == 0) {
+            deleteQuietly(content.file);
+        }
+    }
+
+    /**
+     * 清空缓存,正在重新打印的条目在释放后删除
+     */
+    public synchronized void clear() {
+        List<Entry> removed = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry entry : removed) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * 停止后台清理并清空缓存
+     */
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        clear();
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            logger.warn("删除重新打印缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        expire();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("heapBytes", heapBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("memoryBytes", memoryBytes);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hitCount.get());
+        stats.put("misses", missCount.get());
+        stats.put("evictions", evictionCount.get());
+        stats.put("expired", expiredCount.get());
+        return stats;
+    }
+
+    /**
+     * 缓存条目:作业ID、打印参数和(可能与其他条目共享的)内容
+     */
+    private static final class Entry {
+
+        private final String jobId;
+        private final PrintDTO printDTO;
+        private final Content content;
+        private final long cachedAt = System.currentTimeMillis();
+
+        private Entry(String jobId, PrintDTO printDTO, Content content) {
+            this.jobId = jobId;
+            this.printDTO = printDTO;
+            this.content = content;
+        }
+    }
+
+    /**
+     * 缓存的PDF内容,保存在字节数组或临时文件中
+     */
+    private static final class Content {
+
+        private final byte[] data;
+        private final File file;
+        private final long size;
+
+        /** 以下字段受所属缓存的锁保护 */
+        private int refs;
+        private int pins;
+        private boolean removed;
+
+        private Content(byte[] data, File file, long size) {
+            this.data = data;
+            this.file = file;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.magicyuan.print.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 同一文档的全部分片
+ * 按选中页面顺序拆分为连续页码的分片,分片可在不同打印机上以任意顺序结束;
+ * 最后一个分片结束时由调用方完成原作业,任一分片失败则作业失败
+ *
+ * @param <T> 原作业
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+final class ShardGroup<T> {
+
+    private final T owner;
+    private final List<Shard<T>> shards;
+    private final AtomicInteger remaining;
+    private final AtomicReference<String> failure = new AtomicReference<>();
+    private final AtomicLong peakHeap = new AtomicLong();
+
+    /**
+     * @param selection 要打印的页码
+     * @param shardPages 每个分片的页数
+     */
+    ShardGroup(T owner, PageSelection selection, int shardPages) {
+        this.owner = owner;
+        int total = (selection.getPageCount() + shardPages - 1) / shardPages;
+        List<Shard<T>> list = new ArrayList<>(total);
+        for (int index = 0; index < total; index++) {
+            list.add(new Shard<>(this, index, selection.slice(index * shardPages, shardPages)));
+        }
+        this.shards = Collections.unmodifiableList(list);
+        this.remaining = new AtomicInteger(total);
+    }
+
+    T getOwner() {
+        return owner;
+    }
+
+    List<Shard<T>> getShards() {
+        return shards;
+    }
+
+    int getTotal() {
+        return shards.size();
+    }
+
+    /**
+     * 记录分片失败,只保留第一个失败原因
+     * @return 是否为第一个失败的分片
+     */
+    boolean fail(Shard<T> shard, String error) {
+        return failure.compareAndSet(null, "分片 " + shard.getLabel() + " 失败: " + error);
+    }
+
+    /**
+     * 分片结束
+     * @param heapPeak 该分片打印期间的堆峰值
+     * @return 是否为最后结束的分片,此时可读取失败原因和堆峰值
+     */
+    boolean finish(long heapPeak) {
+        peakHeap.accumulateAndGet(heapPeak, Math::max);
+        return remaining.decrementAndGet() == 0;
+    }
+
+    /**
+     * 第一个失败分片的原因,全部成功时为null
+     */
+    String getFailure() {
+        return failure.get();
+    }
+
+    /**
+     * 各分片堆峰值的最大值
+     */
+    long getPeakHeap() {
+        return peakHeap.get();
+    }
+
+    /**
+     * 大文档的一个分片,包含按选中页面顺序截取的一段连续页码
+     */
+    static final class Shard<T> {
+
+        private final ShardGroup<T> group;
+        private final int index;
+        private final PageSelection pages;
+
+        private Shard(ShardGroup<T> group, int index, PageSelection pages) {
+            this.group = group;
+            this.index = index;
+            this.pages = pages;
+        }
+
+        ShardGroup<T> getGroup() {
+            return group;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        PageSelection getPages() {
+            return pages;
+        }
+
+        /**
+         * 分片标识,如 [2/5 p501-1000]
+         */
+        String getLabel() {
+            return "[" + (index + 1) + "/" + group.getTotal() + " p" + (pages.getFirstPage() + 1) + "-" + (pages.getLastPage() + 1) + "]";
+        }
+    }
+}
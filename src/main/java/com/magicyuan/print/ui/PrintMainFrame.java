@@ -83,9 +83,10 @@ public class PrintMainFrame extends JFrame implements ServerStatusService.Status
      * 检查LibreOffice状态并显示引导提示
      */
     private void checkLibreOfficeStatus() {
-        SwingUtilities.invokeLater(() -> {
-            if (!printService.isOfficeConverterAvailable()) {
-                showLibreOfficeGuide();
+        // Office转换器在后台初始化,确认不可用后再提示
+        printService.getOfficeReadiness().thenAccept(available -> {
+            if (!available) {
+                SwingUtilities.invokeLater(this::showLibreOfficeGuide);
             }
         });
     }
@@ -126,7 +127,7 @@ public class PrintMainFrame extends JFrame implements ServerStatusService.Status
             "<html>&#10003; 当前支持的格式</html>",  // ✓
             new String[]{
                 "<html>&nbsp;&nbsp;&#8226; PDF文档 - 完全支持</html>",
-                "<html>&nbsp;&nbsp;&#8226; 图片格式 - PNG, JPG, GIF, BMP</html>"
+                "<html>&nbsp;&nbsp;&#8226; 图片格式 - PNG, JPG, GIF, BMP, TIFF</html>"
             },
             new Color(232, 245, 233),  // 浅绿背景
             new Color(76, 175, 80)      // 绿色边框
@@ -0,0 +1,134 @@
+package com.magicyuan.print.converter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import com.magicyuan.print.document.DocumentContent;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.Test;
+
+/**
+ * 图片转PDF降采样测试:抽样倍数、嵌入图片的像素尺寸,以及降采样不改变页面尺寸
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class ImageConverterTest {
+
+    private final ImageConverter converter = new ImageConverter(null);
+
+    private static DocumentContent image(int width, int height, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setColor(Color.BLUE);
+            graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return DocumentContent.ofBytes(out.toByteArray(), out.size(), format);
+    }
+
+    /**
+     * 转换后返回第一页及其图片
+     */
+    private ConvertedPage convert(DocumentContent content, int dpi) throws Exception {
+        try (DocumentContent pdf = converter.convert(content, dpi);
+             InputStream in = pdf.openStream();
+             PDDocument document = PDDocument.load(in)) {
+            assertEquals(1, document.getNumberOfPages());
+            PDPage page = document.getPage(0);
+            COSName name = page.getResources().getXObjectNames().iterator().next();
+            PDImageXObject image = (PDImageXObject) page.getResources().getXObject(name);
+            return new ConvertedPage(page.getMediaBox(), image.getWidth(), image.getHeight());
+        }
+    }
+
+    @Test
+    public void subsamplingFactorStaysAboveTargetResolution() {
+        // 3000像素缩到842像素:4倍抽样得到750像素,不低于842/1.25
+        assertEquals(4, ImageConverter.subsamplingFactor(3000, 2000, 842, 562));
+        assertEquals(2, ImageConverter.subsamplingFactor(1000, 1000, 596, 596));
+        // 接近目标时不抽样,由平滑缩放处理
+        assertEquals(1, ImageConverter.subsamplingFactor(900, 900, 596, 596));
+        // 取两个方向中较小的倍数
+        assertEquals(2, ImageConverter.subsamplingFactor(4000, 1000, 500, 500));
+    }
+
+    @Test
+    public void downsamplesLargeImageBySubsampling() throws Exception {
+        ConvertedPage original = convert(image(3000, 2000, "png"), 0);
+        ConvertedPage downsampled = convert(image(3000, 2000, "png"), 72);
+
+        assertEquals(3000, original.imageWidth);
+        assertEquals(2000, original.imageHeight);
+        assertEquals(750, downsampled.imageWidth);
+        assertEquals(500, downsampled.imageHeight);
+        assertSamePage(original.mediaBox, downsampled.mediaBox);
+    }
+
+    @Test
+    public void resizesWhenSubsamplingIsNotEnough() throws Exception {
+        ConvertedPage original = convert(image(900, 900, "png"), 0);
+        ConvertedPage downsampled = convert(image(900, 900, "png"), 72);
+
+        assertEquals(900, original.imageWidth);
+        assertEquals(596, downsampled.imageWidth);
+        assertEquals(596, downsampled.imageHeight);
+        assertSamePage(original.mediaBox, downsampled.mediaBox);
+    }
+
+    @Test
+    public void keepsImageAtOrBelowTargetResolution() throws Exception {
+        ConvertedPage converted = convert(image(3000, 2000, "png"), 300);
+        assertEquals(3000, converted.imageWidth);
+        assertEquals(2000, converted.imageHeight);
+    }
+
+    @Test
+    public void downsamplesJpegInsteadOfPassingThrough() throws Exception {
+        ConvertedPage passthrough = convert(image(3000, 2000, "jpg"), 0);
+        ConvertedPage downsampled = convert(image(3000, 2000, "jpg"), 72);
+
+        assertEquals(3000, passthrough.imageWidth);
+        assertEquals(750, downsampled.imageWidth);
+        assertEquals(500, downsampled.imageHeight);
+        assertSamePage(passthrough.mediaBox, downsampled.mediaBox);
+    }
+
+    private static void assertSamePage(PDRectangle expected, PDRectangle actual) {
+        assertEquals(expected.getWidth(), actual.getWidth(), 0.01f);
+        assertEquals(expected.getHeight(), actual.getHeight(), 0.01f);
+    }
+
+    /**
+     * 转换结果的页面尺寸及嵌入图片的像素尺寸
+     */
+    private static final class ConvertedPage {
+
+        private final PDRectangle mediaBox;
+        private final int imageWidth;
+        private final int imageHeight;
+
+        private ConvertedPage(PDRectangle mediaBox, int imageWidth, int imageHeight) {
+            this.mediaBox = mediaBox;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.magicyuan.print.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 磁盘LRU缓存测试:按访问顺序淘汰、引用中的条目延迟删除、重启恢复
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class DiskLruCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DocumentContent put(DiskLruCache cache, String key, String data) throws IOException {
+        Properties metadata = new Properties();
+        metadata.setProperty("etag", "\"" + key + "\"");
+        return cache.put(key, new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), "pdf", metadata, 0);
+    }
+
+    private static String read(DocumentContent content) throws IOException {
+        byte[] data = new byte[(int) content.length()];
+        try (InputStream in = content.openStream()) {
+            int offset = 0;
+            int read;
+            while (offset < data.length && (read = in.read(data, offset, data.length - offset)) != -1) {
+                offset += read;
+            }
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", folder.getRoot().toPath(), 10);
+        put(cache, "a", "aaaa").close();
+        put(cache, "b", "bbbb").close();
+
+        // 访问a后,b成为最久未使用的条目
+        cache.release(cache.acquire("a"));
+        put(cache, "c", "cccc").close();
+
+        assertNull(cache.acquire("b"));
+        DiskLruCache.Entry a = cache.acquire("a");
+        assertNotNull(a);
+        cache.release(a);
+        assertEquals(8L, cache.getStatistics().get("bytes"));
+        assertEquals(1L, cache.getStatistics().get("evictions"));
+    }
+
+    @Test
+    public void pinnedEntryIsDeletedAfterRelease() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", folder.getRoot().toPath(), 8);
+        DocumentContent pinned = put(cache, "a", "aaaa");
+        File dataFile = pinned.toFile();
+
+        put(cache, "b", "bbbbbb").close();
+        assertNull(cache.acquire("a"));
+        // 仍在使用的条目被淘汰后,文件保留到关闭为止
+        assertTrue(dataFile.isFile());
+        assertEquals("aaaa", read(pinned));
+
+        pinned.close();
+        assertFalse(dataFile.exists());
+    }
+
+    @Test
+    public void replacingKeyKeepsPinnedFile() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", folder.getRoot().toPath(), 100);
+        DocumentContent old = put(cache, "a", "old");
+        File oldFile = old.toFile();
+        put(cache, "a", "new").close();
+
+        assertEquals("old", read(old));
+        old.close();
+        assertFalse(oldFile.exists());
+
+        DiskLruCache.Entry entry = cache.acquire("a");
+        assertEquals("new", read(cache.toContent(entry, "pdf")));
+        cache.release(entry);
+        assertEquals(3L, cache.getStatistics().get("bytes"));
+    }
+
+    @Test
+    public void reloadsEntriesFromDirectory() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        DiskLruCache cache = new DiskLruCache("test", directory, 100);
+        put(cache, "a", "aaaa").close();
+        put(cache, "b", "bb").close();
+
+        DiskLruCache reloaded = new DiskLruCache("test", directory, 100);
+        assertEquals(2, reloaded.getStatistics().get("entries"));
+        assertEquals(6L, reloaded.getStatistics().get("bytes"));
+
+        DiskLruCache.Entry entry = reloaded.acquire("a");
+        assertEquals("\"a\"", entry.getMetadata().getProperty("etag"));
+        assertEquals("aaaa", read(reloaded.toContent(entry, "pdf")));
+        reloaded.release(entry);
+    }
+}
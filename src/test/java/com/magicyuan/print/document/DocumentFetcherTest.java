@@ -0,0 +1,165 @@
+package com.magicyuan.print.document;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 文档下载缓存测试:ETag/Last-Modified条件请求重新验证,以及只缓存200响应
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class DocumentFetcherTest {
+
+    private static final String LAST_MODIFIED = "Wed, 01 Jan 2025 00:00:00 GMT";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String baseUrl;
+    private DocumentFetcher fetcher;
+
+    /** 每次请求的If-None-Match / If-Modified-Since请求头 */
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger version = new AtomicInteger(1);
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/etag", exchange -> {
+            String etag = "\"v" + version.get() + "\"";
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            conditions.add(String.valueOf(ifNoneMatch));
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(ifNoneMatch)) {
+                respond(exchange, 304, null);
+            } else {
+                respond(exchange, 200, "document v" + version.get());
+            }
+        });
+        server.createContext("/modified", exchange -> {
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            conditions.add(String.valueOf(ifModifiedSince));
+            exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+            if (LAST_MODIFIED.equals(ifModifiedSince)) {
+                respond(exchange, 304, null);
+            } else {
+                respond(exchange, 200, "modified document");
+            }
+        });
+        server.createContext("/partial", exchange -> {
+            conditions.add(String.valueOf(exchange.getRequestHeaders().getFirst("If-None-Match")));
+            exchange.getResponseHeaders().set("ETag", "\"partial\"");
+            exchange.getResponseHeaders().set("Content-Range", "bytes 0-6/100");
+            respond(exchange, 206, "partial");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        DiskLruCache cache = new DiskLruCache("test", folder.getRoot().toPath(), 1024 * 1024);
+        // TTL为0:每次访问都需要重新验证
+        fetcher = new DocumentFetcher(5000, 5000, 4, 1024 * 1024, 0, cache, 0);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+
+    private String fetch(String path) throws IOException {
+        try (DocumentContent content = fetcher.fetch(baseUrl + path, "pdf");
+             InputStream in = content.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> cacheStatistics() {
+        return (Map<String, Object>) fetcher.getStatistics().get("cache");
+    }
+
+    @Test
+    public void revalidatesWithETag() throws Exception {
+        assertEquals("document v1", fetch("/etag"));
+        assertEquals("document v1", fetch("/etag"));
+
+        assertEquals("null", conditions.get(0));
+        assertEquals("\"v1\"", conditions.get(1));
+        assertEquals(1L, cacheStatistics().get("stored"));
+        assertEquals(1L, cacheStatistics().get("revalidated"));
+    }
+
+    @Test
+    public void replacesEntryWhenETagChanges() throws Exception {
+        assertEquals("document v1", fetch("/etag"));
+        version.set(2);
+        assertEquals("document v2", fetch("/etag"));
+        assertEquals("document v2", fetch("/etag"));
+
+        assertEquals("\"v1\"", conditions.get(1));
+        assertEquals("\"v2\"", conditions.get(2));
+        assertEquals(2L, cacheStatistics().get("stored"));
+        assertEquals(1L, cacheStatistics().get("revalidated"));
+        assertEquals(1, cacheStatistics().get("entries"));
+    }
+
+    @Test
+    public void revalidatesWithLastModified() throws Exception {
+        assertEquals("modified document", fetch("/modified"));
+        assertEquals("modified document", fetch("/modified"));
+
+        assertEquals("null", conditions.get(0));
+        assertEquals(LAST_MODIFIED, conditions.get(1));
+        assertEquals(1L, cacheStatistics().get("revalidated"));
+    }
+
+    @Test
+    public void doesNotCachePartialContent() throws Exception {
+        assertEquals("partial", fetch("/partial"));
+        assertEquals("partial", fetch("/partial"));
+
+        // 206不写入缓存,第二次请求也不带条件请求头
+        assertEquals("null", conditions.get(1));
+        assertEquals(0L, cacheStatistics().get("stored"));
+        assertEquals(0, cacheStatistics().get("entries"));
+    }
+}
@@ -0,0 +1,165 @@
+package com.magicyuan.print.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * PDF加载器测试:各内存策略的选择、全局堆预算的预留和释放
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PdfLoaderTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private static byte[] pdf;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void createPdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            document.addPage(new PDPage());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            pdf = out.toByteArray();
+        }
+    }
+
+    private PdfLoader loader(PdfLoader.Mode mode, long heapPerDocument, long heapBudget) {
+        return new PdfLoader(mode, heapPerDocument, heapBudget, folder.getRoot());
+    }
+
+    private static DocumentContent content() {
+        return DocumentContent.ofBytes(pdf, pdf.length, "pdf");
+    }
+
+    private static long stat(PdfLoader loader, String name) {
+        Map<String, Object> stats = loader.getStatistics();
+        return ((Number) stats.get(name)).longValue();
+    }
+
+    @Test
+    public void parsesModeWithMixedDefault() {
+        assertEquals(PdfLoader.Mode.MEMORY, PdfLoader.Mode.parse("Memory"));
+        assertEquals(PdfLoader.Mode.FILE, PdfLoader.Mode.parse("file"));
+        assertEquals(PdfLoader.Mode.MIXED, PdfLoader.Mode.parse("mixed"));
+        assertEquals(PdfLoader.Mode.MIXED, PdfLoader.Mode.parse(null));
+    }
+
+    @Test
+    public void memoryAndFileModesReserveNoHeap() throws IOException {
+        PdfLoader memory = loader(PdfLoader.Mode.MEMORY, 4 * MB, 16 * MB);
+        try (PdfLoader.LoadedPdf loaded = memory.load(content())) {
+            assertEquals(2, loaded.getDocument().getNumberOfPages());
+            assertEquals(0, loaded.getHeapGrant());
+        }
+        assertEquals(1, stat(memory, "memoryLoads"));
+        assertEquals(0, stat(memory, "heapReserved"));
+
+        PdfLoader file = loader(PdfLoader.Mode.FILE, 4 * MB, 16 * MB);
+        try (PdfLoader.LoadedPdf loaded = file.load(content())) {
+            assertEquals(2, loaded.getDocument().getNumberOfPages());
+            assertEquals(0, loaded.getHeapGrant());
+        }
+        assertEquals(1, stat(file, "scratchLoads"));
+    }
+
+    @Test
+    public void mixedModeReservesUntilBudgetIsSpent() throws IOException {
+        PdfLoader loader = loader(PdfLoader.Mode.MIXED, 2 * MB, 3 * MB + MB / 2);
+        PdfLoader.LoadedPdf first = loader.load(content());
+        PdfLoader.LoadedPdf second = loader.load(content());
+        PdfLoader.LoadedPdf third = loader.load(content());
+        try {
+            assertEquals(2 * MB, first.getHeapGrant());
+            // 剩余预算不足单个文档的上限时按剩余预算分配
+            assertEquals(MB + MB / 2, second.getHeapGrant());
+            // 预算用尽后只使用临时文件
+            assertEquals(0, third.getHeapGrant());
+            assertEquals(2, third.getDocument().getNumberOfPages());
+            assertEquals(3 * MB + MB / 2, stat(loader, "heapReserved"));
+            assertEquals(2, stat(loader, "mixedLoads"));
+            assertEquals(1, stat(loader, "scratchLoads"));
+        } finally {
+            first.close();
+            second.close();
+            third.close();
+        }
+        assertEquals(0, stat(loader, "heapReserved"));
+    }
+
+    @Test
+    public void remainderBelowMinimumIsNotGranted() throws IOException {
+        PdfLoader loader = loader(PdfLoader.Mode.MIXED, 2 * MB, 2 * MB + MB / 2);
+        try (PdfLoader.LoadedPdf first = loader.load(content());
+             PdfLoader.LoadedPdf second = loader.load(content())) {
+            assertEquals(2 * MB, first.getHeapGrant());
+            assertEquals(0, second.getHeapGrant());
+        }
+    }
+
+    @Test
+    public void closingReturnsGrantOnce() throws IOException {
+        PdfLoader loader = loader(PdfLoader.Mode.MIXED, 2 * MB, 2 * MB);
+        PdfLoader.LoadedPdf first = loader.load(content());
+        assertEquals(2 * MB, first.getHeapGrant());
+        first.close();
+        first.close();
+        assertEquals(0, stat(loader, "heapReserved"));
+
+        try (PdfLoader.LoadedPdf second = loader.load(content())) {
+            assertEquals(2 * MB, second.getHeapGrant());
+        }
+    }
+
+    @Test
+    public void failedLoadReleasesGrant() {
+        PdfLoader loader = loader(PdfLoader.Mode.MIXED, 2 * MB, 2 * MB);
+        byte[] garbage = "not a pdf".getBytes();
+        try {
+            loader.load(DocumentContent.ofBytes(garbage, garbage.length, "pdf"));
+            fail();
+        } catch (IOException expected) {
+            // 预期加载失败
+        }
+        assertEquals(0, stat(loader, "heapReserved"));
+    }
+
+    @Test
+    public void loadsOnlyContentLengthOfLargerArray() throws IOException {
+        byte[] padded = Arrays.copyOf(pdf, pdf.length + 4096);
+        PdfLoader loader = loader(PdfLoader.Mode.MEMORY, 0, 0);
+        try (PdfLoader.LoadedPdf loaded = loader.load(DocumentContent.ofBytes(padded, pdf.length, "pdf"))) {
+            assertEquals(2, loaded.getDocument().getNumberOfPages());
+        }
+    }
+
+    @Test
+    public void loadsFileContent() throws IOException {
+        File file = folder.newFile("doc.pdf");
+        Files.write(file.toPath(), pdf);
+        PdfLoader loader = loader(PdfLoader.Mode.MIXED, 2 * MB, 2 * MB);
+        try (PdfLoader.LoadedPdf loaded = loader.load(DocumentContent.ofFile(file, "pdf", false))) {
+            assertEquals(2, loaded.getDocument().getNumberOfPages());
+            assertEquals(2 * MB, loaded.getHeapGrant());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * 页码选择测试:解析、超出文档的裁剪、区间合并、分段截取和查找下一页
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PageSelectionTest {
+
+    private static void assertRanges(PageSelection selection, int[]... expected) {
+        List<int[]> ranges = selection.getRanges();
+        assertEquals(expected.length, ranges.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], ranges.get(i));
+        }
+    }
+
+    @Test
+    public void blankSelectsAllPages() {
+        PageSelection selection = PageSelection.parse(null, 5);
+        assertRanges(selection, new int[] {0, 5});
+        assertEquals(5, selection.getPageCount());
+        assertEquals(0, selection.getFirstPage());
+        assertEquals(4, selection.getLastPage());
+    }
+
+    @Test
+    public void convertsToZeroBasedHalfOpenRanges() {
+        PageSelection selection = PageSelection.parse("2-3, 5", 10);
+        assertRanges(selection, new int[] {1, 3}, new int[] {4, 5});
+        assertEquals(3, selection.getPageCount());
+        assertEquals(1, selection.getFirstPage());
+        assertEquals(4, selection.getLastPage());
+    }
+
+    @Test
+    public void clipsRangesPastDocumentEnd() {
+        PageSelection selection = PageSelection.parse("2-4,8-12,20", 10);
+        assertRanges(selection, new int[] {1, 4}, new int[] {7, 10});
+        assertEquals(6, selection.getPageCount());
+        assertEquals(9, selection.getLastPage());
+    }
+
+    @Test
+    public void rejectsRangesEntirelyPastDocumentEnd() {
+        try {
+            PageSelection.parse("11-12", 10);
+            fail("没有页码落在文档内时应拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void sortsAndMergesOverlappingInput() {
+        PageSelection selection = PageSelection.parse("7,3-5,1-4", 10);
+        assertRanges(selection, new int[] {0, 5}, new int[] {6, 7});
+        assertEquals(6, selection.getPageCount());
+    }
+
+    @Test
+    public void mergesAdjacentRanges() {
+        assertRanges(PageSelection.parse("3-4,1-2", 10), new int[] {0, 4});
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        for (String invalid : new String[] {"abc", "3-1", "0", "1,,x"}) {
+            try {
+                PageSelection.validate(invalid);
+                fail("格式错误应拒绝: " + invalid);
+            } catch (IllegalArgumentException expected) {
+                // 预期
+            }
+        }
+        PageSelection.validate(" ");
+        PageSelection.validate("1-3, 5");
+    }
+
+    @Test
+    public void sliceCrossesRangeBoundaries() {
+        // 选中页码: 1 2 3 | 7 8 9 | 12
+        PageSelection selection = PageSelection.parse("2-4,8-10,13", 20);
+
+        assertRanges(selection.slice(0, 3), new int[] {1, 4});
+        assertRanges(selection.slice(2, 3), new int[] {3, 4}, new int[] {7, 9});
+        assertRanges(selection.slice(3, 3), new int[] {7, 10});
+        assertRanges(selection.slice(5, 10), new int[] {9, 10}, new int[] {12, 13});
+        assertEquals(2, selection.slice(5, 10).getPageCount());
+        assertEquals(0, selection.slice(7, 3).getPageCount());
+        assertEquals(-1, selection.slice(7, 3).getFirstPage());
+    }
+
+    @Test
+    public void slicesCoverSelectionWithoutGaps() {
+        PageSelection selection = PageSelection.parse("1-5,9,11-14", 20);
+        int covered = 0;
+        for (int skip = 0; skip < selection.getPageCount(); skip += 3) {
+            PageSelection slice = selection.slice(skip, 3);
+            covered += slice.getPageCount();
+            assertEquals(selection.slice(skip, 1).getFirstPage(), slice.getFirstPage());
+        }
+        assertEquals(selection.getPageCount(), covered);
+    }
+
+    @Test
+    public void nextPageSkipsGapsAndEndsAfterLastRange() {
+        PageSelection selection = PageSelection.parse("2-3,6", 10);
+
+        assertEquals(1, selection.nextPage(0));
+        assertEquals(2, selection.nextPage(2));
+        assertEquals(5, selection.nextPage(3));
+        assertEquals(5, selection.nextPage(5));
+        assertEquals(-1, selection.nextPage(6));
+        assertEquals(-1, selection.nextPage(100));
+    }
+}
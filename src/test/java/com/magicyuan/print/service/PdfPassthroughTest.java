@@ -0,0 +1,297 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.print.Doc;
+import javax.print.DocFlavor;
+import javax.print.DocPrintJob;
+import javax.print.PrintException;
+import javax.print.ServiceUIFactory;
+import javax.print.StreamPrintService;
+import javax.print.attribute.Attribute;
+import javax.print.attribute.AttributeSet;
+import javax.print.attribute.HashPrintServiceAttributeSet;
+import javax.print.attribute.PrintJobAttributeSet;
+import javax.print.attribute.PrintRequestAttributeSet;
+import javax.print.attribute.PrintServiceAttribute;
+import javax.print.attribute.PrintServiceAttributeSet;
+import javax.print.attribute.standard.Copies;
+import javax.print.attribute.standard.JobName;
+import javax.print.attribute.standard.OrientationRequested;
+import javax.print.event.PrintJobAttributeListener;
+import javax.print.event.PrintJobListener;
+import javax.print.event.PrintServiceAttributeListener;
+
+import org.junit.Test;
+
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.dto.PrintDTO;
+
+/**
+ * PDF直通打印测试:PDF字节和打印属性原样送达打印机,不支持或发送失败时回退到Java2D打印
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PdfPassthroughTest {
+
+    private static final byte[] PDF = "%PDF-1.4 stand-in document %%EOF".getBytes();
+
+    private static DocumentContent pdf() {
+        // 数组比内容长,只应发送内容部分
+        return DocumentContent.ofBytes(Arrays.copyOf(PDF, PDF.length + 16), PDF.length, "pdf");
+    }
+
+    private static PrintDTO printDTO(boolean landscape) {
+        PrintDTO printDTO = new PrintDTO();
+        printDTO.setFileName("report.pdf");
+        printDTO.setLandscape(landscape);
+        return printDTO;
+    }
+
+    private static long stat(PdfPassthrough passthrough, String name) {
+        return ((Number) passthrough.getStatistics().get(name)).longValue();
+    }
+
+    @Test
+    public void sendsPdfBytesWithAttributes() {
+        StandInService service = new StandInService("Office", false, DocFlavor.INPUT_STREAM.PDF, DocFlavor.INPUT_STREAM.AUTOSENSE);
+        PdfPassthrough passthrough = new PdfPassthrough("*");
+
+        assertTrue(passthrough.print(service, pdf(), printDTO(true), 3));
+
+        assertArrayEquals(PDF, service.output.toByteArray());
+        assertEquals(DocFlavor.INPUT_STREAM.PDF, service.flavor);
+        assertEquals(new Copies(3), service.attributes.get(Copies.class));
+        assertEquals(new JobName("report.pdf", null), service.attributes.get(JobName.class));
+        assertEquals(OrientationRequested.LANDSCAPE, service.attributes.get(OrientationRequested.class));
+        assertEquals(1, stat(passthrough, "jobs"));
+    }
+
+    @Test
+    public void singleCopyOmitsCopiesAttribute() {
+        StandInService service = new StandInService("Office", false, DocFlavor.INPUT_STREAM.PDF);
+        assertTrue(new PdfPassthrough("*").print(service, pdf(), printDTO(false), 1));
+
+        assertNull(service.attributes.get(Copies.class));
+        assertEquals(OrientationRequested.PORTRAIT, service.attributes.get(OrientationRequested.class));
+    }
+
+    @Test
+    public void fallsBackToAutosense() {
+        StandInService service = new StandInService("Office", false, DocFlavor.INPUT_STREAM.AUTOSENSE);
+        assertEquals(DocFlavor.INPUT_STREAM.AUTOSENSE, PdfPassthrough.findFlavor(service));
+        assertTrue(new PdfPassthrough("*").print(service, pdf(), printDTO(false), 1));
+
+        assertEquals(DocFlavor.INPUT_STREAM.AUTOSENSE, service.flavor);
+        assertArrayEquals(PDF, service.output.toByteArray());
+    }
+
+    @Test
+    public void unsupportedFlavorUsesRasterPath() {
+        StandInService service = new StandInService("Office", false, DocFlavor.INPUT_STREAM.POSTSCRIPT);
+        PdfPassthrough passthrough = new PdfPassthrough("*");
+
+        assertNull(PdfPassthrough.findFlavor(service));
+        assertFalse(passthrough.print(service, pdf(), printDTO(false), 1));
+        assertEquals(0, service.output.size());
+        assertEquals(1, stat(passthrough, "fallbacks"));
+    }
+
+    @Test
+    public void rejectedAttributesUseRasterPath() {
+        StandInService service = new StandInService("Office", true, DocFlavor.INPUT_STREAM.PDF);
+        PdfPassthrough passthrough = new PdfPassthrough("*");
+
+        assertFalse(passthrough.print(service, pdf(), printDTO(false), 2));
+        assertEquals(0, stat(passthrough, "jobs"));
+        assertEquals(1, stat(passthrough, "fallbacks"));
+    }
+
+    @Test
+    public void onlyListedPrintersAreEnabled() {
+        PdfPassthrough passthrough = new PdfPassthrough(" office , Lab ");
+        StandInService office = new StandInService("Office", false, DocFlavor.INPUT_STREAM.PDF);
+        StandInService other = new StandInService("Front Desk", false, DocFlavor.INPUT_STREAM.PDF);
+
+        assertTrue(passthrough.isConfigured());
+        assertTrue(passthrough.isEnabled(office));
+        assertFalse(passthrough.isEnabled(null));
+        assertFalse(passthrough.print(other, pdf(), printDTO(false), 1));
+        assertEquals(0, other.output.size());
+        // 未启用的打印机不计入回退
+        assertEquals(0, stat(passthrough, "fallbacks"));
+        assertFalse(new PdfPassthrough("").isConfigured());
+    }
+
+    /**
+     * 记录收到的字节、格式和属性的打印服务
+     */
+    private static final class StandInService extends StreamPrintService {
+
+        private final String name;
+        private final boolean rejectAttributes;
+        private final DocFlavor[] flavors;
+        private final ByteArrayOutputStream output;
+        private DocFlavor flavor;
+        private PrintRequestAttributeSet attributes;
+
+        private StandInService(String name, boolean rejectAttributes, DocFlavor... flavors) {
+            this(name, rejectAttributes, flavors, new ByteArrayOutputStream());
+        }
+
+        private StandInService(String name, boolean rejectAttributes, DocFlavor[] flavors, ByteArrayOutputStream output) {
+            super(output);
+            this.name = name;
+            this.rejectAttributes = rejectAttributes;
+            this.flavors = flavors;
+            this.output = output;
+        }
+
+        @Override
+        public String getOutputFormat() {
+            return "application/pdf";
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public DocPrintJob createPrintJob() {
+            return new StandInJob(this);
+        }
+
+        @Override
+        public void addPrintServiceAttributeListener(PrintServiceAttributeListener listener) {
+        }
+
+        @Override
+        public void removePrintServiceAttributeListener(PrintServiceAttributeListener listener) {
+        }
+
+        @Override
+        public PrintServiceAttributeSet getAttributes() {
+            return new HashPrintServiceAttributeSet();
+        }
+
+        @Override
+        public <T extends PrintServiceAttribute> T getAttribute(Class<T> category) {
+            return null;
+        }
+
+        @Override
+        public DocFlavor[] getSupportedDocFlavors() {
+            return flavors.clone();
+        }
+
+        @Override
+        public boolean isDocFlavorSupported(DocFlavor flavor) {
+            return Arrays.asList(flavors).contains(flavor);
+        }
+
+        @Override
+        public Class<?>[] getSupportedAttributeCategories() {
+            return new Class<?>[0];
+        }
+
+        @Override
+        public boolean isAttributeCategorySupported(Class<? extends Attribute> category) {
+            return false;
+        }
+
+        @Override
+        public Object getDefaultAttributeValue(Class<? extends Attribute> category) {
+            return null;
+        }
+
+        @Override
+        public Object getSupportedAttributeValues(Class<? extends Attribute> category, DocFlavor flavor,
+                                                  AttributeSet attributes) {
+            return null;
+        }
+
+        @Override
+        public boolean isAttributeValueSupported(Attribute attribute, DocFlavor flavor, AttributeSet attributes) {
+            return true;
+        }
+
+        @Override
+        public AttributeSet getUnsupportedAttributes(DocFlavor flavor, AttributeSet attributes) {
+            return null;
+        }
+
+        @Override
+        public ServiceUIFactory getServiceUIFactory() {
+            return null;
+        }
+    }
+
+    /**
+     * 将文档字节写入打印服务的输出流;设置拒绝属性时抛出PrintException
+     */
+    private static final class StandInJob implements DocPrintJob {
+
+        private final StandInService service;
+
+        private StandInJob(StandInService service) {
+            this.service = service;
+        }
+
+        @Override
+        public javax.print.PrintService getPrintService() {
+            return service;
+        }
+
+        @Override
+        public PrintJobAttributeSet getAttributes() {
+            return null;
+        }
+
+        @Override
+        public void addPrintJobListener(PrintJobListener listener) {
+        }
+
+        @Override
+        public void removePrintJobListener(PrintJobListener listener) {
+        }
+
+        @Override
+        public void addPrintJobAttributeListener(PrintJobAttributeListener listener, PrintJobAttributeSet attributes) {
+        }
+
+        @Override
+        public void removePrintJobAttributeListener(PrintJobAttributeListener listener) {
+        }
+
+        @Override
+        public void print(Doc doc, PrintRequestAttributeSet attributes) throws PrintException {
+            if (service.rejectAttributes) {
+                throw new PrintException("attributes not supported");
+            }
+            service.flavor = doc.getDocFlavor();
+            service.attributes = attributes;
+            try (InputStream in = (InputStream) doc.getPrintData()) {
+                OutputStream out = service.getOutputStream();
+                byte[] buffer = new byte[256];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new PrintException(e);
+            }
+        }
+    }
+}
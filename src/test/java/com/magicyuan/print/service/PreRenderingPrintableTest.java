@@ -0,0 +1,278 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.document.PdfLoader;
+
+/**
+ * 预渲染打印测试:按选中页码提前渲染、关闭后不再渲染、关闭时等待渲染中的页面并保留中断状态
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PreRenderingPrintableTest {
+
+    private static final int PAGES = 6;
+    private static final long MB = 1024 * 1024;
+
+    private static byte[] pdf;
+
+    private final PdfLoader pdfLoader = new PdfLoader(PdfLoader.Mode.MIXED, MB, 16 * MB, new File(System.getProperty("java.io.tmpdir")));
+    private CountingPool pool;
+    private PDDocument document;
+    private Graphics2D graphics;
+
+    @BeforeClass
+    public static void createPdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < PAGES; i++) {
+                document.addPage(new PDPage(new PDRectangle(72, 72)));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            pdf = out.toByteArray();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        pool = new CountingPool();
+        document = PDDocument.load(pdf);
+        graphics = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB).createGraphics();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        graphics.dispose();
+        document.close();
+        pool.shutdownNow();
+    }
+
+    private PreRenderingPrintable printable(PdfLoader loader, int lookahead, String pageRanges) {
+        DocumentContent content = DocumentContent.ofBytes(pdf, pdf.length, "pdf");
+        return new PreRenderingPrintable(document, content, loader, pool, 36, lookahead, PageSelection.parse(pageRanges, PAGES));
+    }
+
+    private int print(Printable printable, int pageIndex) throws PrinterException {
+        return printable.print(graphics, new PageFormat(), pageIndex);
+    }
+
+    private static long heapReserved(PdfLoader loader) {
+        return ((Number) loader.getStatistics().get("heapReserved")).longValue();
+    }
+
+    @Test
+    public void rendersLookaheadPagesOnce() throws Exception {
+        try (PreRenderingPrintable printable = printable(pdfLoader, 3, null)) {
+            assertEquals(Printable.PAGE_EXISTS, print(printable, 0));
+            assertEquals(3, pool.submitted.get());
+            // 打印系统重复请求同一页时不再渲染
+            print(printable, 0);
+            assertEquals(3, pool.submitted.get());
+            // 下一页只补充窗口末尾的一页
+            print(printable, 1);
+            assertEquals(4, pool.submitted.get());
+        }
+    }
+
+    @Test
+    public void looksAheadOnlyAtSelectedPages() throws Exception {
+        try (PreRenderingPrintable printable = printable(pdfLoader, 2, "1,3,5")) {
+            print(printable, 0);
+            assertEquals(2, pool.submitted.get());
+            print(printable, 2);
+            print(printable, 4);
+            assertEquals(3, pool.submitted.get());
+        }
+    }
+
+    @Test
+    public void pagesOutsideDocumentDoNotExist() throws Exception {
+        try (PreRenderingPrintable printable = printable(pdfLoader, 3, null)) {
+            assertEquals(Printable.NO_SUCH_PAGE, print(printable, PAGES));
+            assertEquals(Printable.NO_SUCH_PAGE, print(printable, -1));
+            assertEquals(0, pool.submitted.get());
+        }
+    }
+
+    @Test
+    public void closeReleasesRendererDocuments() throws Exception {
+        PreRenderingPrintable printable = printable(pdfLoader, 3, null);
+        print(printable, 0);
+        assertTrue(heapReserved(pdfLoader) > 0);
+        printable.close();
+        assertEquals(0, heapReserved(pdfLoader));
+    }
+
+    @Test
+    public void renderFailureBecomesPrinterException() throws Exception {
+        byte[] garbage = "not a pdf".getBytes();
+        DocumentContent content = DocumentContent.ofBytes(garbage, garbage.length, "pdf");
+        try (PreRenderingPrintable printable = new PreRenderingPrintable(document, content, pdfLoader, pool, 36, 2,
+            PageSelection.parse(null, PAGES))) {
+            print(printable, 0);
+            fail();
+        } catch (PrinterException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void closeCancelsPagesNotYetRendered() throws Exception {
+        pool.hold = true;
+        PreRenderingPrintable printable = printable(pdfLoader, 3, null);
+        AtomicReference<Throwable> printFailure = new AtomicReference<>();
+        Thread printer = new Thread(() -> {
+            try {
+                print(printable, 0);
+            } catch (Throwable e) {
+                printFailure.set(e);
+            }
+        });
+        printer.start();
+        awaitCount(pool.held, 3);
+
+        printable.close();
+        pool.release();
+        printer.join(5000);
+
+        assertTrue(printFailure.get() instanceof PrinterException);
+        // 关闭后排队的页面不再加载文档
+        assertEquals(0, ((Number) pdfLoader.getStatistics().get("mixedLoads")).longValue());
+        try {
+            print(printable, 1);
+            fail();
+        } catch (PrinterException expected) {
+            // 关闭后不能再打印
+        }
+    }
+
+    @Test
+    public void closeWaitsForRenderingPageAndKeepsInterrupt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        BlockingLoader loader = new BlockingLoader(loading, proceed);
+        PreRenderingPrintable printable = printable(loader, 1, null);
+
+        Thread printer = new Thread(() -> {
+            try {
+                print(printable, 0);
+            } catch (PrinterException e) {
+                // 关闭时的结果不在本测试中检查
+            }
+        });
+        printer.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread closer = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            printable.close();
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        closer.start();
+        closer.join(200);
+        // 渲染中的页面结束前关闭不会返回,中断也不会提前返回
+        assertTrue(closer.isAlive());
+
+        proceed.countDown();
+        closer.join(5000);
+        printer.join(5000);
+        assertFalse(closer.isAlive());
+        assertTrue(interrupted.get());
+        assertEquals(0, heapReserved(loader));
+    }
+
+    private static void awaitCount(List<?> list, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (list.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, list.size());
+    }
+
+    /**
+     * 统计提交的渲染任务,可暂缓执行
+     */
+    private static final class CountingPool extends ForkJoinPool {
+
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final List<Runnable> held = new CopyOnWriteArrayList<>();
+        private volatile boolean hold;
+
+        private CountingPool() {
+            super(2);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            submitted.incrementAndGet();
+            if (hold) {
+                held.add(task);
+            } else {
+                super.execute(task);
+            }
+        }
+
+        private void release() {
+            for (Runnable task : held) {
+                super.execute(task);
+            }
+        }
+    }
+
+    /**
+     * 加载文档时阻塞,模拟渲染中的页面
+     */
+    private static final class BlockingLoader extends PdfLoader {
+
+        private final CountDownLatch loading;
+        private final CountDownLatch proceed;
+
+        private BlockingLoader(CountDownLatch loading, CountDownLatch proceed) {
+            super(Mode.MIXED, MB, 16 * MB, new File(System.getProperty("java.io.tmpdir")));
+            this.loading = loading;
+            this.proceed = proceed;
+        }
+
+        @Override
+        public LoadedPdf load(DocumentContent content) throws IOException {
+            loading.countDown();
+            try {
+                proceed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.load(content);
+        }
+    }
+}
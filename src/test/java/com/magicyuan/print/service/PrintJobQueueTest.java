@@ -0,0 +1,170 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 准入队列测试:队列满时拒绝,以及Retry-After估算
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintJobQueueTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> processed = new CopyOnWriteArrayList<>();
+    private PrintJobQueue<String> queue;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * 创建单工作线程的队列,工作线程在release放行前阻塞
+     */
+    private PrintJobQueue<String> blockingQueue(int capacity, PrintJobQueue.RejectPolicy policy, long offerTimeoutMillis) {
+        return new PrintJobQueue<>("test-queue", capacity, 1, policy, offerTimeoutMillis, task -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processed.add(task);
+        });
+    }
+
+    /**
+     * 提交第一个任务并等待工作线程取走,此后队列中的任务都在等待
+     */
+    private void occupyWorker() throws InterruptedException {
+        queue.submit("running");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.getDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void rejectsWhenFull() throws Exception {
+        queue = blockingQueue(2, PrintJobQueue.RejectPolicy.REJECT, 0);
+        occupyWorker();
+        queue.submit("a");
+        queue.submit("b");
+
+        try {
+            queue.submit("c");
+            fail("队列已满时应拒绝");
+        } catch (RejectedExecutionException expected) {
+            // 预期
+        }
+        assertEquals(2, queue.getDepth());
+        assertEquals(2, queue.getCapacity());
+        assertEquals(1, queue.getRejectedCount());
+        assertEquals(1L, queue.getStatistics().get("rejected"));
+        assertEquals(3L, queue.getStatistics().get("submitted"));
+    }
+
+    @Test
+    public void retryAfterUsesDefaultJobTimeWithoutDrainSamples() throws Exception {
+        queue = blockingQueue(2, PrintJobQueue.RejectPolicy.REJECT, 0);
+        assertEquals(1, queue.estimateRetryAfterSeconds());
+
+        occupyWorker();
+        queue.submit("a");
+        queue.submit("b");
+        // 没有消费记录时按每个任务3秒估算
+        assertEquals(0, queue.getDrainRate(), 0.0);
+        assertEquals(6, queue.estimateRetryAfterSeconds());
+    }
+
+    @Test
+    public void retryAfterIsCapped() throws Exception {
+        queue = blockingQueue(500, PrintJobQueue.RejectPolicy.REJECT, 0);
+        occupyWorker();
+        for (int i = 0; i < 500; i++) {
+            queue.submit("job-" + i);
+        }
+        assertEquals(300, queue.estimateRetryAfterSeconds());
+    }
+
+    @Test
+    public void drainRateIsMeasuredAfterCompletions() throws Exception {
+        queue = blockingQueue(10, PrintJobQueue.RejectPolicy.REJECT, 0);
+        release.countDown();
+        for (int i = 0; i < 5; i++) {
+            queue.submit("job-" + i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (processed.size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(5, processed.size());
+        assertEquals("job-0", processed.get(0));
+        assertTrue(queue.getDrainRate() > 0);
+        assertEquals(1, queue.estimateRetryAfterSeconds());
+    }
+
+    @Test
+    public void waitPolicyRejectsAfterTimeout() throws Exception {
+        queue = blockingQueue(1, PrintJobQueue.RejectPolicy.WAIT, 200);
+        occupyWorker();
+        queue.submit("a");
+
+        long start = System.nanoTime();
+        try {
+            queue.submit("b");
+            fail("等待超时后应拒绝");
+        } catch (RejectedExecutionException expected) {
+            // 预期
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+        assertEquals(1, queue.getRejectedCount());
+    }
+
+    @Test
+    public void waitPolicyAcceptsWhenSpaceFrees() throws Exception {
+        queue = blockingQueue(1, PrintJobQueue.RejectPolicy.WAIT, 5000);
+        occupyWorker();
+        queue.submit("a");
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+        queue.submit("b");
+        assertEquals(0, queue.getRejectedCount());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsAfterShutdown() {
+        queue = blockingQueue(2, PrintJobQueue.RejectPolicy.REJECT, 0);
+        queue.shutdown();
+        queue.submit("a");
+    }
+
+    @Test
+    public void parsesRejectPolicy() {
+        assertEquals(PrintJobQueue.RejectPolicy.WAIT, PrintJobQueue.RejectPolicy.parse("WAIT"));
+        assertEquals(PrintJobQueue.RejectPolicy.REJECT, PrintJobQueue.RejectPolicy.parse("reject"));
+        assertEquals(PrintJobQueue.RejectPolicy.REJECT, PrintJobQueue.RejectPolicy.parse(null));
+    }
+}
@@ -0,0 +1,161 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.magicyuan.print.dto.PrintDTO;
+import com.magicyuan.print.model.PrintJob;
+
+/**
+ * 作业索引测试:按ID查询、按结束顺序淘汰已结束作业、移除被拒绝的作业
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintJobRegistryTest {
+
+    private static PrintJob newJob() {
+        return new PrintJob(new PrintDTO());
+    }
+
+    private static PrintJob finishedJob() {
+        PrintJob job = newJob();
+        job.markDone();
+        return job;
+    }
+
+    @Test
+    public void looksUpJobsById() {
+        PrintJobRegistry registry = new PrintJobRegistry(10);
+        PrintJob job = newJob();
+        registry.register(job);
+
+        assertSame(job, registry.get(job.getId()));
+        assertNull(registry.get("missing"));
+        assertNull(registry.get(null));
+    }
+
+    @Test
+    public void evictsOldestFinishedJobsFirst() {
+        PrintJobRegistry registry = new PrintJobRegistry(2);
+        PrintJob first = finishedJob();
+        PrintJob second = finishedJob();
+        PrintJob third = finishedJob();
+        registry.register(first);
+        registry.register(second);
+        registry.register(third);
+
+        assertNull(registry.get(first.getId()));
+        assertNotNull(registry.get(second.getId()));
+        assertNotNull(registry.get(third.getId()));
+        assertEquals(1L, registry.getStatistics().get("evicted"));
+    }
+
+    @Test
+    public void neverEvictsLiveJobs() {
+        PrintJobRegistry registry = new PrintJobRegistry(2);
+        PrintJob queued = newJob();
+        PrintJob running = newJob();
+        running.markRunning();
+        PrintJob finished = finishedJob();
+        registry.register(queued);
+        registry.register(running);
+        registry.register(finished);
+
+        // 较早的两个作业仍在执行,淘汰跳过它们,只淘汰已结束的作业
+        assertNotNull(registry.get(queued.getId()));
+        assertNotNull(registry.get(running.getId()));
+        assertNull(registry.get(finished.getId()));
+
+        PrintJob another = newJob();
+        registry.register(another);
+        // 全部记录都未结束时暂时超出容量
+        assertNotNull(registry.get(another.getId()));
+        assertEquals(3, registry.getStatistics().get("tracked"));
+
+        queued.markFailed("error");
+        registry.register(newJob());
+        assertNull(registry.get(queued.getId()));
+        assertNotNull(registry.get(running.getId()));
+        assertEquals(3, registry.getStatistics().get("tracked"));
+    }
+
+    @Test
+    public void evictsInFinishingOrder() {
+        PrintJobRegistry registry = new PrintJobRegistry(2);
+        PrintJob first = newJob();
+        PrintJob second = newJob();
+        registry.register(first);
+        registry.register(second);
+
+        // 后提交的作业先结束,先被淘汰
+        second.markDone();
+        first.markDone();
+        PrintJob third = newJob();
+        registry.register(third);
+
+        assertNull(registry.get(second.getId()));
+        assertNotNull(registry.get(first.getId()));
+        assertNotNull(registry.get(third.getId()));
+    }
+
+    @Test
+    public void finishingLiveJobsShrinksBackToCapacity() {
+        PrintJobRegistry registry = new PrintJobRegistry(2);
+        PrintJob[] jobs = new PrintJob[4];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = newJob();
+            registry.register(jobs[i]);
+        }
+        assertEquals(4, registry.getStatistics().get("tracked"));
+
+        for (PrintJob job : jobs) {
+            job.markDone();
+        }
+        assertEquals(2, registry.getStatistics().get("tracked"));
+        assertNull(registry.get(jobs[0].getId()));
+        assertNull(registry.get(jobs[1].getId()));
+        assertNotNull(registry.get(jobs[3].getId()));
+    }
+
+    @Test
+    public void removedJobsAreForgotten() {
+        PrintJobRegistry registry = new PrintJobRegistry(3);
+        for (int i = 0; i < 1000; i++) {
+            PrintJob rejected = newJob();
+            registry.register(rejected);
+            registry.remove(rejected);
+            // 移除后才结束的作业不会重新进入索引
+            rejected.markFailed("rejected");
+            assertNull(registry.get(rejected.getId()));
+        }
+        assertEquals(0, registry.getStatistics().get("tracked"));
+
+        PrintJob[] kept = new PrintJob[4];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = finishedJob();
+            registry.register(kept[i]);
+        }
+        assertNull(registry.get(kept[0].getId()));
+        assertNotNull(registry.get(kept[1].getId()));
+        assertEquals(3, registry.getStatistics().get("tracked"));
+        assertEquals(1L, registry.getStatistics().get("evicted"));
+    }
+
+    @Test
+    public void staysAtCapacityAfterManyFinishedJobs() {
+        PrintJobRegistry registry = new PrintJobRegistry(5);
+        PrintJob last = null;
+        for (int i = 0; i < 50; i++) {
+            last = finishedJob();
+            registry.register(last);
+        }
+        assertSame(last, registry.get(last.getId()));
+        assertEquals(5, registry.getStatistics().get("tracked"));
+        assertEquals(45L, registry.getStatistics().get("evicted"));
+    }
+}
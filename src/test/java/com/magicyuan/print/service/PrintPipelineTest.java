@@ -0,0 +1,151 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 打印流水线测试:同一打印机按提交顺序假脱机,不同打印机互不阻塞,阶段出错时不卡住假脱机线程
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintPipelineTest {
+
+    private final List<String> spooled = new CopyOnWriteArrayList<>();
+    private PrintPipeline<String> pipeline;
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    private PrintPipeline<String> pipeline(Consumer<String> fetch, Consumer<String> convert) {
+        return new PrintPipeline<>("test", 4, 4, 16, 16, fetch, convert, spooled::add);
+    }
+
+    private void awaitSpooled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (spooled.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, spooled.size());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void spoolsSamePrinterInSubmissionOrder() throws Exception {
+        // 先提交的任务下载最慢,后面的任务先完成转换,仍需等待前面的任务
+        pipeline = pipeline(task -> sleep(task.equals("a") ? 300 : task.equals("b") ? 100 : 0), task -> { });
+        pipeline.submit("printer", "a");
+        pipeline.submit("printer", "b");
+        pipeline.submit("printer", "c");
+
+        awaitSpooled(3);
+        assertEquals(Arrays.asList("a", "b", "c"), spooled);
+    }
+
+    @Test
+    public void otherPrintersAreNotBlocked() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline = pipeline(task -> {
+            if (task.equals("slow")) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, task -> { });
+        pipeline.submit("first", "slow");
+        pipeline.submit("second", "fast");
+
+        awaitSpooled(1);
+        assertEquals("fast", spooled.get(0));
+        release.countDown();
+        awaitSpooled(2);
+    }
+
+    @Test
+    public void errorInFetchDoesNotBlockLane() throws Exception {
+        pipeline = pipeline(task -> {
+            if (task.equals("broken")) {
+                throw new AssertionError("fetch error");
+            }
+        }, task -> { });
+        pipeline.submit("printer", "broken");
+        pipeline.submit("printer", "next");
+
+        awaitSpooled(1);
+        assertEquals("next", spooled.get(0));
+    }
+
+    @Test
+    public void errorInConvertDoesNotBlockLane() throws Exception {
+        pipeline = pipeline(task -> { }, task -> {
+            if (task.equals("broken")) {
+                throw new AssertionError("convert error");
+            }
+        });
+        pipeline.submit("printer", "broken");
+        pipeline.submit("printer", "next");
+
+        // 转换阶段的Error不影响完成,任务照常进入假脱机
+        awaitSpooled(2);
+        assertEquals(Arrays.asList("broken", "next"), spooled);
+    }
+
+    @Test
+    public void stageExceptionsAreHandledInPlace() throws Exception {
+        pipeline = pipeline(task -> {
+            throw new IllegalStateException("fetch failure");
+        }, task -> {
+            throw new IllegalStateException("convert failure");
+        });
+        pipeline.submit("printer", "a");
+        pipeline.submit("printer", "b");
+
+        // 阶段需自行处理异常,流水线记录后继续,由假脱机阶段根据任务状态处理
+        awaitSpooled(2);
+        assertEquals(Arrays.asList("a", "b"), spooled);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsAfterShutdown() throws Exception {
+        pipeline = pipeline(task -> { }, task -> { });
+        pipeline.shutdown();
+        pipeline.submit("printer", "a");
+    }
+
+    @Test
+    public void reportsSpoolStatisticsPerPrinter() throws Exception {
+        pipeline = pipeline(task -> { }, task -> { });
+        pipeline.submit("first", "a");
+        pipeline.submit("second", "b");
+        awaitSpooled(2);
+
+        Object spool = pipeline.getStatistics().get("spool");
+        assertTrue(spool instanceof Map);
+        assertEquals(2, ((Map<?, ?>) spool).size());
+    }
+}
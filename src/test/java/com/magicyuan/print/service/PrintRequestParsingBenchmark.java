@@ -0,0 +1,88 @@
+package com.magicyuan.print.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alibaba.fastjson.JSONObject;
+import com.magicyuan.print.dto.PrintDTO;
+
+/**
+ * POST /print 请求体解析基准测试:流式解析与整体读取后解析(printbridge.http.streamingParse=false)对比
+ * 运行: mvn test-compile 后执行本类的main方法,或
+ * java -cp target/test-classes:target/classes:依赖 org.openjdk.jmh.Main PrintRequestParsingBenchmark -prof gc
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrintRequestParsingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"fileUrl\":\"http://files.example.com/templates/label-").append(i)
+                .append(".pdf\",\"fileName\":\"label-").append(i)
+                .append(".pdf\",\"landscape\":").append(i % 2 == 0)
+                .append(",\"copies\":1,\"printer\":\"warehouse\"}");
+        }
+        body = json.append("\n]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) {
+        JettyPrintService.readPrintDTOs(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8),
+            blackhole::consume);
+    }
+
+    @Benchmark
+    public void buffered(Blackhole blackhole) throws IOException {
+        String requestBody = JettyPrintService.readBody(new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)));
+        List<PrintDTO> printList = JSONObject.parseArray(requestBody, PrintDTO.class);
+        for (PrintDTO dto : printList) {
+            blackhole.consume(dto);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PrintRequestParsingBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.magicyuan.print.dto.PrintDTO;
+
+/**
+ * POST /print 请求体解析测试
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintRequestParsingTest {
+
+    @Test
+    public void streamingParseDeliversEntriesInOrder() {
+        List<PrintDTO> parsed = new ArrayList<>();
+        JettyPrintService.readPrintDTOs(new StringReader(
+            "[{\"fileUrl\":\"http://a/1.pdf\",\"fileName\":\"1\",\"copies\":2},"
+                + "{\"fileUrl\":\"http://a/2.pdf\",\"pageRanges\":\"1-3\",\"landscape\":true}]"),
+            parsed::add);
+
+        assertEquals(2, parsed.size());
+        assertEquals("http://a/1.pdf", parsed.get(0).getFileUrl());
+        assertEquals(Integer.valueOf(2), parsed.get(0).getCopies());
+        assertNull(parsed.get(0).getPageRanges());
+        assertEquals("1-3", parsed.get(1).getPageRanges());
+        assertEquals(true, parsed.get(1).isLandscape());
+    }
+
+    @Test
+    public void streamingParseHandsOverEntriesBeforeMalformedOne() {
+        List<PrintDTO> parsed = new ArrayList<>();
+        try {
+            JettyPrintService.readPrintDTOs(new StringReader(
+                "[{\"fileUrl\":\"http://a/1.pdf\"},{\"fileUrl\":\"http://a/2.pdf\"},{\"fileUrl\":}]"),
+                parsed::add);
+            fail("格式错误的条目应抛出异常");
+        } catch (RuntimeException expected) {
+            // 之前的条目已交给consumer,响应需要报告这些已接受的作业
+        }
+        assertEquals(2, parsed.size());
+    }
+
+    @Test
+    public void emptyArrayDeliversNothing() {
+        List<PrintDTO> parsed = new ArrayList<>();
+        JettyPrintService.readPrintDTOs(new StringReader("[]"), parsed::add);
+        assertEquals(0, parsed.size());
+    }
+
+    @Test
+    public void bufferedReadJoinsLines() throws Exception {
+        String body = JettyPrintService.readBody(new BufferedReader(new StringReader("[\n{\"fileUrl\":\"x\"}\n]")));
+        assertEquals("[{\"fileUrl\":\"x\"}]", body);
+    }
+}
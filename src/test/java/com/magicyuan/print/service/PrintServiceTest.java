@@ -0,0 +1,82 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.dto.PrintDTO;
+import com.magicyuan.print.model.PrintJob;
+import com.magicyuan.print.model.PrintQueueModel;
+
+/**
+ * 打印服务测试:作业无法送入流水线时结束作业并释放内容
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrintServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PrintService printService;
+
+    @Before
+    public void setUp() {
+        printService = new PrintService(new PrintQueueModel());
+    }
+
+    @After
+    public void tearDown() {
+        printService.shutdown();
+    }
+
+    private static PrintDTO printDTO(String fileName) {
+        PrintDTO printDTO = new PrintDTO();
+        printDTO.setFileName(fileName);
+        return printDTO;
+    }
+
+    @Test
+    public void dispatchAfterPipelineShutdownFailsJob() throws Exception {
+        printService.getPipeline().shutdown();
+        AtomicBoolean released = new AtomicBoolean();
+        File file = folder.newFile("doc.pdf");
+        DocumentContent content = DocumentContent.ofFile(file, "pdf", () -> released.set(true));
+
+        PrintJob job = printService.submit(printDTO("doc.pdf"), content);
+        job.awaitState(PrintJob.State.DONE).get(5, TimeUnit.SECONDS);
+
+        assertEquals(PrintJob.State.FAILED, job.getState());
+        assertTrue(released.get());
+        Object outstanding = printService.getPrinterPools().getLoad(PrinterResolver.DEFAULT).toMap().get("outstandingJobs");
+        assertEquals(0, outstanding);
+    }
+
+    @Test
+    public void dispatchAfterPipelineShutdownFailsWholeBatch() throws Exception {
+        printService.getPipeline().shutdown();
+        PrintDTO first = printDTO("a.pdf");
+        first.setFileUrl("http://localhost/a.pdf");
+        PrintDTO second = printDTO("b.pdf");
+        second.setFileUrl("http://localhost/b.pdf");
+
+        for (PrintJob job : printService.submitBatch(Arrays.asList(first, second))) {
+            job.awaitState(PrintJob.State.DONE).get(5, TimeUnit.SECONDS);
+            assertEquals(PrintJob.State.FAILED, job.getState());
+        }
+        Object outstanding = printService.getPrinterPools().getLoad(PrinterResolver.DEFAULT).toMap().get("outstandingJobs");
+        assertEquals(0, outstanding);
+    }
+}
@@ -0,0 +1,163 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.print.PrintService;
+import javax.print.attribute.standard.PrinterState;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 打印机池测试:选择只使用后台刷新的状态,不在提交线程上查询打印机;池名和打印机名称统一解析为队列键
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrinterPoolsTest {
+
+    /** 打印机名称 -> 报告的状态 */
+    private final Map<String, PrinterState> states = new ConcurrentHashMap<>();
+    private final AtomicInteger attributeQueries = new AtomicInteger();
+    private volatile Thread queryThread;
+    private PrinterPools printerPools;
+
+    @After
+    public void tearDown() {
+        if (printerPools != null) {
+            printerPools.shutdown();
+        }
+    }
+
+    /**
+     * 只回答getName和getAttribute(PrinterState)的打印服务,记录查询次数和线程
+     */
+    private PrintService service(String name) {
+        return (PrintService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PrintService.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getName")) {
+                    return name;
+                }
+                if (method.getName().equals("getAttribute")) {
+                    attributeQueries.incrementAndGet();
+                    queryThread = Thread.currentThread();
+                    return args[0] == PrinterState.class ? states.get(name) : null;
+                }
+                return null;
+            });
+    }
+
+    private PrinterResolver resolver() {
+        return new PrinterResolver("", null) {
+
+            @Override
+            public String resolveKey(String printer) {
+                if (!states.containsKey(printer)) {
+                    throw new IllegalArgumentException("打印机不存在: " + printer);
+                }
+                return printer;
+            }
+
+            @Override
+            public PrintService lookup(String key) {
+                return states.containsKey(key) ? service(key) : null;
+            }
+        };
+    }
+
+    private void awaitQueries(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (attributeQueries.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(attributeQueries.get() >= count);
+    }
+
+    @Test
+    public void selectUsesCachedStateOnly() throws Exception {
+        states.put("a", PrinterState.IDLE);
+        states.put("b", PrinterState.IDLE);
+        printerPools = new PrinterPools("office=a|b", resolver(), 60000);
+        // 首次刷新:两台打印机各4个属性
+        awaitQueries(8);
+        Thread.sleep(50);
+        int queries = attributeQueries.get();
+
+        assertEquals("a", printerPools.select("office", 1));
+        assertEquals("b", printerPools.select("office", 1));
+        assertEquals(Arrays.asList("a", "b"), printerPools.rankAvailable("office", null));
+        assertEquals(queries, attributeQueries.get());
+        assertEquals("printer-pool-state", queryThread.getName());
+    }
+
+    @Test
+    public void skipsStoppedMemberAfterRefresh() throws Exception {
+        states.put("a", PrinterState.STOPPED);
+        states.put("b", PrinterState.IDLE);
+        printerPools = new PrinterPools("office=a|b", resolver(), 60000);
+        awaitQueries(8);
+        Thread.sleep(50);
+
+        assertEquals("b", printerPools.select("office", 1));
+        assertEquals("b", printerPools.select("office", 1));
+        assertEquals(Collections.singletonList("b"), printerPools.rankAvailable("office", null));
+    }
+
+    @Test
+    public void invalidateRefreshesInBackground() throws Exception {
+        states.put("a", PrinterState.IDLE);
+        states.put("b", PrinterState.IDLE);
+        printerPools = new PrinterPools("office=a|b", resolver(), 60000);
+        awaitQueries(8);
+        Thread.sleep(50);
+        assertTrue(printerPools.rankAvailable("office", null).contains("a"));
+
+        states.put("a", PrinterState.STOPPED);
+        int queries = attributeQueries.get();
+        printerPools.invalidateState(Collections.singletonList("a"));
+        awaitQueries(queries + 4);
+        Thread.sleep(50);
+        assertFalse(printerPools.rankAvailable("office", null).contains("a"));
+    }
+
+    @Test
+    public void reservesPoolMemberForPoolName() throws Exception {
+        states.put("a", PrinterState.IDLE);
+        states.put("b", PrinterState.IDLE);
+        printerPools = new PrinterPools("office=a|b", resolver(), 60000);
+        awaitQueries(8);
+        Thread.sleep(50);
+
+        // 打印历史中池作业的打印机为池名,重新打印时同样选择成员
+        assertEquals("a", printerPools.reserve(" Office ", 1));
+        assertEquals("b", printerPools.reserve("office", 1));
+        assertEquals("a", printerPools.reserve("a", 1));
+        assertEquals(2, printerPools.getLoad("a").toMap().get("outstandingJobs"));
+
+        printerPools.getLoad("a").release(2);
+        assertEquals(0, printerPools.getLoad("a").toMap().get("outstandingJobs"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reserveRejectsUnknownPrinter() {
+        printerPools = new PrinterPools("office=a|b", resolver(), 60000);
+        printerPools.reserve("lab", 1);
+    }
+
+    @Test
+    public void noRefresherWithoutPools() {
+        printerPools = new PrinterPools("", resolver(), 10);
+        assertFalse(printerPools.isPool("office"));
+        printerPools.invalidateState(Collections.singletonList("a"));
+        assertEquals(0, attributeQueries.get());
+    }
+}
@@ -0,0 +1,223 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.print.DocFlavor;
+import javax.print.PrintService;
+import javax.print.attribute.standard.ColorSupported;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 打印机注册表测试:首次查找完成前等待,之后只读取缓存;打印机增减和能力变化时通知监听器
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class PrinterRegistryTest {
+
+    /** 打印机名称 -> 是否支持彩色 */
+    private final Map<String, Boolean> colors = new ConcurrentHashMap<>();
+    private final List<PrinterRegistry.Change> changes = new CopyOnWriteArrayList<>();
+    private final StandInLookup lookup = new StandInLookup();
+    private PrinterRegistry registry;
+
+    @After
+    public void tearDown() {
+        lookup.release.countDown();
+        if (registry != null) {
+            registry.shutdown();
+        }
+    }
+
+    /**
+     * 只回答名称、文档格式和彩色能力的打印服务
+     */
+    private PrintService service(String name) {
+        return (PrintService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PrintService.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getName":
+                        return name;
+                    case "getSupportedDocFlavors":
+                        return new DocFlavor[0];
+                    case "isDocFlavorSupported":
+                        return false;
+                    case "getAttribute":
+                        if (args[0] == ColorSupported.class && colors.containsKey(name)) {
+                            return colors.get(name) ? ColorSupported.SUPPORTED : ColorSupported.NOT_SUPPORTED;
+                        }
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    /**
+     * 添加监听器后再放行首次查找
+     */
+    private PrinterRegistry registry() {
+        registry = new PrinterRegistry(60000, lookup);
+        registry.addListener(changes::add);
+        lookup.release.countDown();
+        return registry;
+    }
+
+    private void refresh() throws Exception {
+        registry.refresh().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void waitsForFirstDiscovery() throws Exception {
+        lookup.services = new PrintService[] {service("a")};
+        registry = new PrinterRegistry(60000, lookup);
+
+        AtomicReference<PrintService[]> result = new AtomicReference<>();
+        Thread reader = new Thread(() -> result.set(registry.getServices()));
+        reader.start();
+        reader.join(200);
+        assertTrue(reader.isAlive());
+
+        lookup.release.countDown();
+        reader.join(5000);
+        assertEquals(1, result.get().length);
+        assertEquals("a", result.get()[0].getName());
+    }
+
+    @Test
+    public void readsCacheAfterDiscovery() throws Exception {
+        PrintService a = service("a");
+        lookup.services = new PrintService[] {a};
+        lookup.defaultService = a;
+        registry();
+
+        assertSame(a, registry.getDefaultService());
+        int lookups = lookup.calls.size();
+        for (int i = 0; i < 10; i++) {
+            registry.getServices();
+            registry.getPrinters();
+        }
+        assertEquals(lookups, lookup.calls.size());
+        assertFalse(lookup.calls.contains(Thread.currentThread().getName()));
+        assertEquals("printer-discovery", lookup.calls.get(0));
+    }
+
+    @Test
+    public void failedDiscoveryDoesNotBlock() throws Exception {
+        lookup.failure = new IllegalStateException("cups unavailable");
+        registry();
+
+        assertEquals(0, registry.getServices().length);
+        assertNull(registry.getDefaultService());
+        assertEquals(1L, registry.getStatistics().get("failures"));
+
+        lookup.failure = null;
+        lookup.services = new PrintService[] {service("a")};
+        refresh();
+        assertEquals(1, registry.getServices().length);
+    }
+
+    @Test
+    public void reportsAddedRemovedAndChangedPrinters() throws Exception {
+        colors.put("a", false);
+        lookup.services = new PrintService[] {service("a"), service("b")};
+        registry();
+        registry.getServices();
+        assertEquals(1, changes.size());
+        assertEquals(Arrays.asList("a", "b"), changes.get(0).getAdded());
+
+        // 无变化时不通知
+        refresh();
+        assertEquals(1, changes.size());
+
+        colors.put("a", true);
+        lookup.services = new PrintService[] {service("a"), service("c")};
+        refresh();
+        assertEquals(2, changes.size());
+        PrinterRegistry.Change change = changes.get(1);
+        assertEquals(Collections.singletonList("c"), change.getAdded());
+        assertEquals(Collections.singletonList("b"), change.getRemoved());
+        assertEquals(Collections.singletonList("a"), change.getChanged());
+    }
+
+    @Test
+    public void defaultPrinterSwitchIsAChange() throws Exception {
+        PrintService a = service("a");
+        PrintService b = service("b");
+        lookup.services = new PrintService[] {a, b};
+        lookup.defaultService = a;
+        registry();
+        registry.getServices();
+
+        lookup.defaultService = b;
+        refresh();
+        assertEquals(2, changes.size());
+        assertEquals(Arrays.asList("a", "b"), changes.get(1).getChanged());
+        assertSame(b, registry.getDefaultService());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOthers() throws Exception {
+        registry = new PrinterRegistry(60000, lookup);
+        registry.addListener(change -> {
+            throw new IllegalStateException("listener failure");
+        });
+        registry.addListener(changes::add);
+        lookup.services = new PrintService[] {service("a")};
+        lookup.release.countDown();
+        registry.getServices();
+        assertEquals(1, changes.size());
+    }
+
+    /**
+     * 返回预设打印机的查找,记录调用线程;放行前查找一直等待
+     */
+    private static final class StandInLookup implements PrinterRegistry.Lookup {
+
+        private final List<String> calls = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile PrintService[] services = new PrintService[0];
+        private volatile PrintService defaultService;
+        private volatile RuntimeException failure;
+
+        @Override
+        public PrintService[] services() {
+            calls.add(Thread.currentThread().getName());
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return services;
+        }
+
+        @Override
+        public PrintService defaultService() {
+            return defaultService;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.alibaba.fastjson.JSON;
+import com.magicyuan.print.document.DocumentContent;
+import com.magicyuan.print.dto.PrintDTO;
+
+/**
+ * 重新打印缓存测试:字节预算淘汰、重新打印共享内容、使用中的文件延迟删除、后台过期清理
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class ReprintCacheTest {
+
+    private ReprintCache cache;
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    private static DocumentContent pdf(int size, int fill) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) fill);
+        return DocumentContent.ofBytes(data, size, "pdf");
+    }
+
+    private static byte[] read(DocumentContent content) throws IOException {
+        byte[] data = new byte[(int) content.length()];
+        try (InputStream in = content.openStream()) {
+            int offset = 0;
+            int read;
+            while (offset < data.length && (read = in.read(data, offset, data.length - offset)) != -1) {
+                offset += read;
+            }
+        }
+        return data;
+    }
+
+    private static File fileOf(DocumentContent content) throws IOException {
+        try {
+            return content.toFile();
+        } finally {
+            content.close();
+        }
+    }
+
+    private long stat(String name) {
+        return ((Number) cache.getStatistics().get(name)).longValue();
+    }
+
+    @Test
+    public void keepsSmallContentOnHeap() throws Exception {
+        cache = new ReprintCache(1000, 1000, 0);
+        PrintDTO printDTO = new PrintDTO();
+        try (DocumentContent pdf = pdf(100, 1)) {
+            cache.put("a", printDTO, pdf);
+        }
+
+        try (DocumentContent leased = cache.lease("a")) {
+            assertTrue(leased.isInMemory());
+            assertArrayEquals(read(pdf(100, 1)), read(leased));
+        }
+        assertSame(printDTO, cache.getPrintDTO("a"));
+        assertEquals(100, stat("heapBytes"));
+        assertNull(cache.lease("missing"));
+        assertNull(cache.lease(null));
+    }
+
+    @Test
+    public void keepsOnlyContentOfLargerBuffer() throws Exception {
+        cache = new ReprintCache(1000, 1000, 0);
+        byte[] buffer = new byte[800];
+        Arrays.fill(buffer, 0, 100, (byte) 3);
+        try (DocumentContent pdf = DocumentContent.ofBytes(buffer, 100, "pdf")) {
+            cache.put("a", new PrintDTO(), pdf);
+        }
+
+        try (DocumentContent leased = cache.lease("a")) {
+            assertEquals(100, leased.getData().length);
+            assertArrayEquals(read(pdf(100, 3)), read(leased));
+        }
+        assertEquals(100, stat("heapBytes"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByBytes() throws Exception {
+        cache = new ReprintCache(250, 0, 0);
+        cache.put("a", new PrintDTO(), pdf(100, 1));
+        cache.put("b", new PrintDTO(), pdf(100, 2));
+        cache.lease("a").close();
+        cache.put("c", new PrintDTO(), pdf(100, 3));
+
+        assertNull(cache.lease("b"));
+        assertNotNull(cache.getPrintDTO("a"));
+        assertEquals(200, stat("bytes"));
+        assertEquals(0, stat("heapBytes"));
+        assertEquals(1, stat("evictions"));
+    }
+
+    @Test
+    public void evictedFileSurvivesUntilLeaseIsClosed() throws Exception {
+        cache = new ReprintCache(150, 0, 0);
+        cache.put("a", new PrintDTO(), pdf(100, 1));
+        DocumentContent leased = cache.lease("a");
+        File file = leased.toFile();
+
+        cache.put("b", new PrintDTO(), pdf(100, 2));
+        assertNull(cache.lease("a"));
+        assertTrue(file.isFile());
+        assertEquals(100, read(leased).length);
+
+        leased.close();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void aliasSharesContentWithoutCountingTwice() throws Exception {
+        cache = new ReprintCache(1000, 0, 0);
+        cache.put("original", new PrintDTO(), pdf(100, 7));
+        PrintDTO reprinted = new PrintDTO();
+        reprinted.setCopies(3);
+
+        assertTrue(cache.alias("reprint", "original", reprinted));
+        assertEquals(2, stat("entries"));
+        assertEquals(100, stat("bytes"));
+        assertSame(reprinted, cache.getPrintDTO("reprint"));
+        try (DocumentContent leased = cache.lease("reprint")) {
+            assertEquals(7, read(leased)[0]);
+        }
+
+        // 没有缓存的原作业无法关联
+        assertFalse(cache.alias("other", "missing", new PrintDTO()));
+    }
+
+    @Test
+    public void sharedContentOutlivesSourceEntry() throws Exception {
+        cache = new ReprintCache(250, 0, 0);
+        cache.put("a", new PrintDTO(), pdf(100, 1));
+        assertTrue(cache.alias("b", "a", new PrintDTO()));
+        cache.put("c", new PrintDTO(), pdf(100, 2));
+        cache.lease("b").close();
+        cache.put("d", new PrintDTO(), pdf(100, 3));
+
+        // 淘汰a只移除引用,内容仍被b使用;淘汰c才释放字节
+        assertNull(cache.lease("a"));
+        assertNull(cache.lease("c"));
+        try (DocumentContent leased = cache.lease("b")) {
+            assertEquals(1, read(leased)[0]);
+        }
+        assertEquals(200, stat("bytes"));
+    }
+
+    @Test
+    public void sweepsExpiredEntriesInBackground() throws Exception {
+        cache = new ReprintCache(1000, 0, 200);
+        cache.put("a", new PrintDTO(), pdf(100, 1));
+        File file = fileOf(cache.lease("a"));
+        assertTrue(file.isFile());
+
+        // 不访问缓存,由后台清理删除过期条目的文件
+        long deadline = System.currentTimeMillis() + 5000;
+        while (file.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(file.exists());
+        assertEquals(0, stat("entries"));
+        assertEquals(0, stat("bytes"));
+        assertEquals(1, stat("expired"));
+    }
+
+    @Test
+    public void disabledCacheStoresNothing() throws Exception {
+        cache = new ReprintCache(0, 0, 1000);
+        assertFalse(cache.isEnabled());
+        cache.put("a", new PrintDTO(), pdf(10, 1));
+        assertNull(cache.lease("a"));
+        assertFalse(cache.alias("b", "a", new PrintDTO()));
+    }
+
+    @Test
+    public void clearDeletesFiles() throws Exception {
+        cache = new ReprintCache(1000, 0, 0);
+        cache.put("a", new PrintDTO(), pdf(100, 1));
+        File file = fileOf(cache.lease("a"));
+
+        cache.clear();
+        assertFalse(file.exists());
+        assertEquals(0, stat("bytes"));
+    }
+
+    @Test
+    public void jobIdIsNotPartOfJson() {
+        PrintDTO printDTO = JSON.parseObject("{\"fileUrl\":\"http://a/1.pdf\",\"jobId\":\"forged\"}", PrintDTO.class);
+        assertNull(printDTO.getJobId());
+
+        printDTO.setJobId("abc");
+        assertFalse(JSON.toJSONString(printDTO).contains("abc"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.magicyuan.print.dto.PrintDTO;
+import com.magicyuan.print.service.ShardGroup.Shard;
+
+/**
+ * 分片测试:按选中页码拆分、分片标识页内容、任意结束顺序下只有最后一个分片完成原作业
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class ShardGroupTest {
+
+    private static ShardGroup<String> group(String pageRanges, int documentPages, int shardPages) {
+        return new ShardGroup<>("job", PageSelection.parse(pageRanges, documentPages), shardPages);
+    }
+
+    @Test
+    public void splitsIntoConsecutiveShards() {
+        ShardGroup<String> group = group(null, 1200, 500);
+        assertEquals(3, group.getTotal());
+
+        List<String> labels = new ArrayList<>();
+        for (Shard<String> shard : group.getShards()) {
+            labels.add(shard.getLabel());
+        }
+        assertEquals("[1/3 p1-500]", labels.get(0));
+        assertEquals("[2/3 p501-1000]", labels.get(1));
+        assertEquals("[3/3 p1001-1200]", labels.get(2));
+        assertEquals(200, group.getShards().get(2).getPages().getPageCount());
+    }
+
+    @Test
+    public void splitsOnlySelectedPages() {
+        // 选中 1-3 和 8-10 共6页,每片4页
+        ShardGroup<String> group = group("1-3,8-10", 20, 4);
+        assertEquals(2, group.getTotal());
+
+        Shard<String> first = group.getShards().get(0);
+        assertEquals(4, first.getPages().getPageCount());
+        assertEquals(0, first.getPages().getFirstPage());
+        assertEquals(7, first.getPages().getLastPage());
+
+        Shard<String> second = group.getShards().get(1);
+        assertEquals(2, second.getPages().getPageCount());
+        assertEquals("[2/2 p9-10]", second.getLabel());
+    }
+
+    @Test
+    public void exactMultipleHasNoEmptyShard() {
+        ShardGroup<String> group = group(null, 1000, 500);
+        assertEquals(2, group.getTotal());
+        assertEquals(500, group.getShards().get(1).getPages().getPageCount());
+    }
+
+    @Test
+    public void lastShardToFinishCompletesGroup() {
+        ShardGroup<String> group = group(null, 30, 10);
+        List<Shard<String>> shards = group.getShards();
+
+        // 分片在不同打印机上以任意顺序结束
+        assertFalse(group.finish(100));
+        assertFalse(group.finish(300));
+        assertTrue(group.finish(200));
+        assertNull(group.getFailure());
+        assertEquals(300, group.getPeakHeap());
+        assertEquals("job", shards.get(0).getGroup().getOwner());
+    }
+
+    @Test
+    public void keepsFirstFailure() {
+        ShardGroup<String> group = group(null, 30, 10);
+        Shard<String> second = group.getShards().get(1);
+        Shard<String> third = group.getShards().get(2);
+
+        assertTrue(group.fail(third, "paper jam"));
+        assertFalse(group.fail(second, "offline"));
+        assertFalse(group.finish(0));
+        assertFalse(group.finish(0));
+        assertTrue(group.finish(0));
+        assertEquals("分片 [3/3 p21-30] 失败: paper jam", group.getFailure());
+    }
+
+    @Test
+    public void concurrentFinishCompletesOnce() throws Exception {
+        int total = 64;
+        ShardGroup<String> group = group(null, total, 1);
+        AtomicInteger completed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (group.finish(1)) {
+                    completed.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertEquals(1, completed.get());
+    }
+
+    @Test
+    public void bannerDescribesShard() {
+        Shard<String> shard = group(null, 1200, 500).getShards().get(1);
+        PrintDTO printDTO = new PrintDTO();
+        printDTO.setFileUrl("http://example.com/big.pdf");
+        PrintService.ShardBanner banner = new PrintService.ShardBanner(shard, printDTO, "office-2", "abc123");
+
+        assertArrayEquals(new String[] {
+            "http://example.com/big.pdf",
+            "分片 2 / 3",
+            "页码 501 - 1000",
+            "打印机 office-2",
+            "作业 abc123"
+        }, banner.lines);
+
+        Graphics2D graphics = new BufferedImage(600, 800, BufferedImage.TYPE_INT_RGB).createGraphics();
+        try {
+            assertEquals(Printable.PAGE_EXISTS, banner.print(graphics, new PageFormat(), 0));
+            assertEquals(Printable.NO_SUCH_PAGE, banner.print(graphics, new PageFormat(), 1));
+        } finally {
+            graphics.dispose();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.magicyuan.print.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.print.Book;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * 合并打印页码换算测试:Book的全局页码换算为各文档内选中的页码
+ *
+ * @author Magic_yuan
+ * @version 2.1.0
+ */
+public class TrackedPrintableTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    /**
+     * 按Book页码依次打印全部页面,返回各文档收到的页码,如 "a2"
+     */
+    private List<String> printAll(Book book) throws PrinterException {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            for (int page = 0; page < book.getNumberOfPages(); page++) {
+                Printable printable = book.getPrintable(page);
+                assertEquals(Printable.PAGE_EXISTS, printable.print(graphics, book.getPageFormat(page), page));
+            }
+            return calls;
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private static void append(Book book, Printable printable, String pageRanges, int documentPages) {
+        PrintService.appendPages(book, printable, new PageFormat(), PageSelection.parse(pageRanges, documentPages),
+            new PrintService.HeapTracker());
+    }
+
+    @Test
+    public void singleDocumentKeepsPageNumbers() throws PrinterException {
+        Book book = new Book();
+        append(book, new RecordingPrintable("a"), null, 3);
+        assertEquals(Arrays.asList("a0", "a1", "a2"), printAll(book));
+    }
+
+    @Test
+    public void selectedRangesSkipUnselectedPages() throws PrinterException {
+        Book book = new Book();
+        append(book, new RecordingPrintable("a"), "2-3,6", 10);
+        assertEquals(Arrays.asList("a1", "a2", "a5"), printAll(book));
+    }
+
+    @Test
+    public void mergedDocumentsStartAtTheirOwnPages() throws PrinterException {
+        Book book = new Book();
+        append(book, new RecordingPrintable("a"), "2-3", 5);
+        append(book, new RecordingPrintable("b"), null, 2);
+        append(book, new RecordingPrintable("c"), "4,1", 4);
+        assertEquals(Arrays.asList("a1", "a2", "b0", "b1", "c0", "c3"), printAll(book));
+    }
+
+    @Test
+    public void repeatedCopiesRestartFromSelection() throws PrinterException {
+        Book book = new Book();
+        RecordingPrintable a = new RecordingPrintable("a");
+        append(book, new RecordingPrintable("x"), "1", 3);
+        append(book, a, "2-3", 4);
+        append(book, a, "2-3", 4);
+        assertEquals(Arrays.asList("x0", "a1", "a2", "a1", "a2"), printAll(book));
+    }
+
+    /**
+     * 记录收到的页码
+     */
+    private final class RecordingPrintable implements Printable {
+
+        private final String name;
+
+        private RecordingPrintable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int print(Graphics graphics, PageFormat pageFormat, int pageIndex) {
+            calls.add(name + pageIndex);
+            return PAGE_EXISTS;
+        }
+    }
+}